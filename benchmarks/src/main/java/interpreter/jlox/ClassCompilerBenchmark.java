@@ -0,0 +1,53 @@
+package interpreter.jlox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The same parsed tree walked by the Interpreter and run as the class
+// ClassCompiler makes of it, and what making that class costs. Trees over
+// ClassCompiler.MAX_NODES, such as those of a million tokens, do not compile.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class ClassCompilerBenchmark {
+
+	private final Interpreter interpreter = new Interpreter();
+	private ClassCompiler.Compiled compiled;
+
+	@Setup(Level.Trial)
+	public void setUp(Inputs inputs) {
+		compiled = new ClassCompiler().compile(inputs.parsed);
+		if (compiled == null) {
+			throw new IllegalStateException(inputs.shape + " input of " + inputs.tokens + " tokens does not compile");
+		}
+	}
+
+	@Benchmark
+	public Object treeWalker(Inputs inputs) {
+		return interpreter.compute(inputs.parsed);
+	}
+
+	@Benchmark
+	public Object compiled() {
+		return compiled.evaluate();
+	}
+
+	@Benchmark
+	public ClassCompiler.Compiled compile(Inputs inputs) {
+		return new ClassCompiler().compile(inputs.parsed);
+	}
+}
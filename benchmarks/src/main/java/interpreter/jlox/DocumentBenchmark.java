@@ -0,0 +1,99 @@
+package interpreter.jlox;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time per keystroke as an editor would send it, for buffers of growing size:
+// typing a digit into a statement and deleting it again, applied to a
+// Document, against scanning and parsing the whole buffer both times. As
+// when typing, each keystroke lands a little after the last, with a jump
+// somewhere else every so often; 'scattered' jumps every time.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+public class DocumentBenchmark {
+
+	// One short expression statement per line.
+	@State(Scope.Benchmark)
+	public static class Buffer {
+
+		@Param({ "1000", "10000", "100000" })
+		public int statements;
+
+		String text;
+		Document document;
+		Random random;
+		int cursor;
+		int keystrokes;
+
+		@Setup
+		public void setUp() {
+			random = new Random(42);
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < statements; i++) {
+				builder.append(random.nextInt(100)).append(" + ").append(random.nextInt(100))
+					.append(" * (").append(random.nextInt(100)).append(" - 3.5);\n");
+			}
+			text = builder.toString();
+			document = new Document(text);
+		}
+
+		// Just after a digit, so the edit lengthens a number.
+		int offset(boolean jump) {
+			if (jump || ++keystrokes % 1000 == 0) cursor = random.nextInt(text.length());
+			do {
+				cursor = cursor % (text.length() - 1) + 1;
+			} while (!Character.isDigit(text.charAt(cursor - 1)));
+			return cursor;
+		}
+	}
+
+	@Benchmark
+	public int incremental(Buffer buffer) {
+		return type(buffer, buffer.offset(false));
+	}
+
+	@Benchmark
+	public int scattered(Buffer buffer) {
+		return type(buffer, buffer.offset(true));
+	}
+
+	private static int type(Buffer buffer, int offset) {
+		buffer.document.edit(offset, 0, "7");
+		buffer.document.edit(offset, 1, "");
+		return buffer.document.size();
+	}
+
+	@Benchmark
+	public int full(Buffer buffer) {
+		int offset = buffer.offset(false);
+		String typed = buffer.text.substring(0, offset) + "7" + buffer.text.substring(offset);
+		return parse(typed) + parse(buffer.text);
+	}
+
+	private static int parse(String text) {
+		List<Token> tokens = new Scanner(text).scanTokens();
+		Parser parser = new Parser(tokens);
+		int count = 0;
+		while (parser.hasNext()) {
+			parser.parseNext();
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,37 @@
+package interpreter.jlox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Scan, parse, optimize and evaluate, as jlox.run does minus the printing.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class EndToEndBenchmark {
+
+	private final Interpreter interpreter = new Interpreter();
+
+	@Benchmark
+	public Object run(Inputs inputs) {
+		Expression expression = new Parser(new Scanner(inputs.source).scanTokens()).parse();
+		return interpreter.compute(new Optimizer().optimize(expression));
+	}
+
+	@Benchmark
+	public Object runPacked(Inputs inputs) {
+		Expression expression = new Parser(new Scanner(inputs.source).scanPacked()).parse();
+		return interpreter.compute(new Optimizer().optimize(expression));
+	}
+}
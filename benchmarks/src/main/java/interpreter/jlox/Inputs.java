@@ -0,0 +1,45 @@
+package interpreter.jlox;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Shared benchmark state: one generated source per (shape, size), along with
+// its tokens and parsed tree for the benchmarks that skip the earlier phases.
+@State(Scope.Benchmark)
+public class Inputs {
+
+	@Param({ "CHAIN", "NESTED", "STRINGS", "REPEATED" })
+	public Corpus shape;
+
+	@Param({ "10", "1000", "100000", "1000000" })
+	public int tokens;
+
+	String source;
+	List<Token> scanned;
+	PackedTokens packed;
+	Expression parsed;
+	// The same tree with equal subtrees shared, for the memoizing evaluator.
+	Expression shared;
+	ExpressionArena arena;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		source = shape.generate(tokens);
+		scanned = new Scanner(source).scanTokens();
+		packed = new Scanner(source).scanPacked();
+		Console console = Console.standard();
+		parsed = new Parser(scanned, console).parse();
+		if (console.hadError || parsed == null) {
+			throw new IllegalStateException("Generated " + shape + " input does not parse");
+		}
+		arena = ExpressionArena.of(parsed);
+		Parser parser = new Parser(scanned, console);
+		parser.intern(new ExpressionInterner());
+		shared = parser.parse();
+	}
+}
@@ -0,0 +1,63 @@
+package interpreter.jlox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class InterpreterBenchmark {
+
+	private final Interpreter unboxed = new Interpreter();
+	private final Interpreter boxed = new Interpreter();
+	private final Interpreter memoizing = new Interpreter();
+	private final VM vm = new VM();
+	private final ArenaEvaluator arena = new ArenaEvaluator();
+	private Chunk chunk;
+
+	@Setup(Level.Trial)
+	public void setUp(Inputs inputs) {
+		boxed.unboxed = false;
+		memoizing.memoize = true;
+		chunk = new BytecodeCompiler().compile(inputs.parsed);
+	}
+
+	@Benchmark
+	public Object treeWalker(Inputs inputs) {
+		return unboxed.compute(inputs.parsed);
+	}
+
+	@Benchmark
+	public Object treeWalkerBoxed(Inputs inputs) {
+		return boxed.compute(inputs.parsed);
+	}
+
+	@Benchmark
+	public Object treeWalkerMemo(Inputs inputs) {
+		return memoizing.compute(inputs.shared);
+	}
+
+	@Benchmark
+	public Object arena(Inputs inputs) {
+		return arena.evaluate(inputs.arena);
+	}
+
+	@Benchmark
+	public Object bytecode() {
+		return vm.run(chunk);
+	}
+}
@@ -0,0 +1,71 @@
+package interpreter.jlox;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// What metrics cost: the tree walker with and without the operator
+// histogram, and whole runs through a Session with metrics off and on.
+// With metrics off, treeWalker should match InterpreterBenchmark's.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+	private final Interpreter plain = new Interpreter();
+	private final Interpreter counting = new Interpreter();
+	private Session session;
+	private Session measured;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		counting.countOperators(new long[TokenType.values().length]);
+		session = session(false);
+		measured = session(true);
+	}
+
+	private static Session session(boolean metrics) {
+		Engine.Options options = new Engine.Options();
+		options.printTree = false;
+		options.metrics = metrics;
+		PrintStream sink = new PrintStream(OutputStream.nullOutputStream());
+		return new Engine(options).newSession(sink, sink);
+	}
+
+	@Benchmark
+	public Object treeWalker(Inputs inputs) {
+		return plain.compute(inputs.parsed);
+	}
+
+	@Benchmark
+	public Object treeWalkerCounting(Inputs inputs) {
+		return counting.compute(inputs.parsed);
+	}
+
+	@Benchmark
+	public boolean run(Inputs inputs) {
+		session.run(inputs.source);
+		return session.hadError();
+	}
+
+	@Benchmark
+	public boolean runMeasured(Inputs inputs) {
+		measured.run(inputs.source);
+		return measured.hadError();
+	}
+}
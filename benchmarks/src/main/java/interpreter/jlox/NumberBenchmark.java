@@ -0,0 +1,84 @@
+package interpreter.jlox;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Number literals turned into doubles: cut out of the source and handed to
+// Double.parseDouble, as the tokens used to, against NumberParser reading
+// them in place. Scores are per pass over all the literals.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+public class NumberBenchmark {
+
+	// 'count' literals separated by spaces, in one source string.
+	@State(Scope.Benchmark)
+	public static class Literals {
+
+		@Param({ "INTEGERS", "SHORT_DECIMALS", "LONG_DECIMALS" })
+		public String shape;
+
+		@Param({ "10000" })
+		public int count;
+
+		String source;
+		int[] starts;
+		int[] lengths;
+
+		@Setup
+		public void setUp() {
+			Random random = new Random(42);
+			StringBuilder builder = new StringBuilder();
+			starts = new int[count];
+			lengths = new int[count];
+			for (int i = 0; i < count; i++) {
+				starts[i] = builder.length();
+				if (shape.equals("INTEGERS")) {
+					builder.append(random.nextInt(100000));
+				}
+				else if (shape.equals("SHORT_DECIMALS")) {
+					builder.append(random.nextInt(1000)).append('.').append(random.nextInt(100));
+				}
+				else {
+					builder.append(Double.toString(random.nextDouble() * 1000));
+				}
+				lengths[i] = builder.length() - starts[i];
+				builder.append(' ');
+			}
+			source = builder.toString();
+		}
+	}
+
+	@Benchmark
+	public double parseDouble(Literals literals) {
+		double sum = 0;
+		for (int i = 0; i < literals.count; i++) {
+			int start = literals.starts[i];
+			sum += Double.parseDouble(literals.source.substring(start, start + literals.lengths[i]));
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double numberParser(Literals literals) {
+		double sum = 0;
+		for (int i = 0; i < literals.count; i++) {
+			sum += NumberParser.parse(literals.source, literals.starts[i], literals.lengths[i]);
+		}
+		return sum;
+	}
+}
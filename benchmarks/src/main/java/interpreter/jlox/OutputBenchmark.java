@@ -0,0 +1,89 @@
+package interpreter.jlox;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Writing results out, one line each, to /dev/null: through a PrintStream set
+// up as System.out is, a small buffer flushed at every line, and through
+// ChannelOutput. stringify on its own is measured too, against the
+// toString-and-trim it replaced.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class OutputBenchmark {
+
+	private static final int RESULTS = 10_000;
+
+	private final Object[] values = new Object[RESULTS];
+	private PrintStream standard;
+	private FileChannel channel;
+	private ChannelOutput buffered;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		Random random = new Random(1);
+		for (int i = 0; i < RESULTS; i++) {
+			// Whole numbers and fractions, as results mostly are.
+			values[i] = random.nextBoolean() ? (double) random.nextInt(100_000) : random.nextInt(100_000) / 8.0;
+		}
+		standard = new PrintStream(new BufferedOutputStream(new FileOutputStream("/dev/null"), 128), true);
+		channel = new FileOutputStream("/dev/null").getChannel();
+		buffered = new ChannelOutput(channel, channel, ChannelOutput.BUFFER, ChannelOutput.FLUSH_MILLIS);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		buffered.close();
+		channel.close();
+		standard.close();
+	}
+
+	@Benchmark
+	public void standardStream() {
+		for (Object value : values) standard.println(Interpreter.stringify(value));
+	}
+
+	@Benchmark
+	public void channelOutput() {
+		PrintStream out = buffered.out();
+		for (Object value : values) out.println(Interpreter.stringify(value));
+	}
+
+	@Benchmark
+	public int stringify() {
+		int length = 0;
+		for (Object value : values) length += Interpreter.stringify(value).length();
+		return length;
+	}
+
+	@Benchmark
+	public int stringifyByTrimming() {
+		int length = 0;
+		for (Object value : values) {
+			String text = value.toString();
+			if (text.endsWith(".0")) text = text.substring(0, text.length() - 2);
+			length += text.length();
+		}
+		return length;
+	}
+}
@@ -0,0 +1,34 @@
+package interpreter.jlox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+public class ParserBenchmark {
+
+	@Benchmark
+	public Expression parse(Inputs inputs) {
+		return new Parser(inputs.scanned).parse();
+	}
+
+	@Benchmark
+	public ExpressionArena parseArena(Inputs inputs) {
+		return new Parser(inputs.scanned).parseArena();
+	}
+
+	@Benchmark
+	public Expression parsePacked(Inputs inputs) {
+		return new Parser(inputs.packed).parse();
+	}
+}
@@ -0,0 +1,55 @@
+package interpreter.jlox;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Writing a parsed tree out: printed into a String and then to a stream, as
+// runs used to, printed straight to the stream, and dumped in binary.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class PrinterBenchmark {
+
+	private final ASTPrinter printer = new ASTPrinter();
+	private final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+	private ASTDump.Writer dump;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		dump = new ASTDump.Writer(new DataOutputStream(OutputStream.nullOutputStream()));
+	}
+
+	@Benchmark
+	public void string(Inputs inputs) {
+		out.println(printer.print(inputs.parsed));
+	}
+
+	@Benchmark
+	public void stream(Inputs inputs) throws IOException {
+		printer.print(inputs.parsed, out);
+		out.println();
+	}
+
+	@Benchmark
+	public void binary(Inputs inputs) throws IOException {
+		dump.write(inputs.parsed);
+	}
+}
@@ -0,0 +1,143 @@
+package interpreter.jlox;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// With -prof gc, gc.alloc.rate.norm divided by the tokens parameter gives the
+// bytes the scanner allocates per token.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+public class ScannerBenchmark {
+
+	@Benchmark
+	public List<Token> scanTokens(Inputs inputs) {
+		return new Scanner(inputs.source).scanTokens();
+	}
+
+	@Benchmark
+	public PackedTokens scanPacked(Inputs inputs) {
+		return new Scanner(inputs.source).scanPacked();
+	}
+
+	@Benchmark
+	public int streaming(Inputs inputs) {
+		StreamingScanner scanner = new StreamingScanner(new StringReader(inputs.source));
+		int count = 0;
+		while (scanner.next().GetType() != TokenType.EOF) count++;
+		return count;
+	}
+
+	// Token streams the parser would reject but that stress the scanner's
+	// own paths: identifiers mixed with keywords; long runs of blanks and
+	// newlines, '//' comments or string literals between short tokens. Each
+	// is also held as bytes for the memory-mapped form of the same input.
+	@State(Scope.Benchmark)
+	public static class Text {
+
+		private static final String[] KEYWORDS = { "and", "class", "else", "false", "for", "fun", "if",
+				"nil", "or", "print", "return", "super", "this", "true", "var", "while" };
+
+		@Param({ "IDENTIFIERS", "WHITESPACE", "COMMENTS", "STRINGS" })
+		public String shape;
+
+		@Param({ "100000" })
+		public int tokens;
+
+		String source;
+		ByteBuffer bytes;
+
+		@Setup
+		public void setUp() {
+			Random random = new Random(42);
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < tokens; i++) {
+				if (shape.equals("IDENTIFIERS")) {
+					if (random.nextInt(4) == 0) {
+						builder.append(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+					}
+					else {
+						int length = 1 + random.nextInt(10);
+						builder.append((char) ('a' + random.nextInt(26)));
+						for (int c = 1; c < length; c++) {
+							builder.append("abcdefghijklmnopqrstuvwxyz_0123456789".charAt(random.nextInt(37)));
+						}
+					}
+					builder.append(' ');
+				}
+				else if (shape.equals("WHITESPACE")) {
+					builder.append(random.nextInt(10));
+					int blanks = 1 + random.nextInt(40);
+					for (int c = 0; c < blanks; c++) builder.append(" \t \r\n ".charAt(random.nextInt(6)));
+				}
+				else if (shape.equals("COMMENTS")) {
+					builder.append(random.nextInt(10)).append(" // ");
+					int length = random.nextInt(80);
+					for (int c = 0; c < length; c++) builder.append((char) ('a' + random.nextInt(26)));
+					builder.append('\n');
+				}
+				else {
+					builder.append('"');
+					int length = random.nextInt(120);
+					for (int c = 0; c < length; c++) {
+						builder.append(random.nextInt(60) == 0 ? '\n' : (char) ('a' + random.nextInt(26)));
+					}
+					builder.append("\" + ");
+				}
+			}
+			source = builder.toString();
+			bytes = ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII));
+		}
+	}
+
+	@Benchmark
+	public List<Token> scanText(Text text) {
+		return new Scanner(text.source).scanTokens();
+	}
+
+	@Benchmark
+	public List<Token> scanTextBulk(Text text) {
+		return new Scanner(text.source, Console.standard(), 1, true).scanTokens();
+	}
+
+	@Benchmark
+	public PackedTokens scanTextPacked(Text text) {
+		return new Scanner(text.source).scanPacked();
+	}
+
+	@Benchmark
+	public PackedTokens scanMapped(Text text) {
+		return new Scanner(new MappedSource(text.bytes), Console.standard(), 1, false).scanPacked();
+	}
+
+	@Benchmark
+	public PackedTokens scanMappedBulk(Text text) {
+		return new Scanner(new MappedSource(text.bytes), Console.standard(), 1, true).scanPacked();
+	}
+
+	@Benchmark
+	public int streamingText(Text text) {
+		StreamingScanner scanner = new StreamingScanner(new StringReader(text.source));
+		int count = 0;
+		while (scanner.next().GetType() != TokenType.EOF) count++;
+		return count;
+	}
+}
@@ -0,0 +1,265 @@
+package interpreter.jlox;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+// A compact binary form of parsed trees, for tools that would rather read
+// trees back than parse the printed form. A dump is MAGIC and VERSION, each
+// an int, then any number of trees. A tree is its nodes in postfix order,
+// children left to right before their parent, and then END, so a reader
+// rebuilds it with one stack and no recursion.
+//
+// Each node is a tag byte followed by:
+//   NIL, TRUE, FALSE, GROUPING   nothing
+//   INTEGER                      a whole number that fits an int, as a
+//                                zigzag varint: 0, -1, 1, -2... as 0, 1, 2, 3...
+//   NUMBER                       any other double, 8 bytes
+//   STRING                       its UTF-8 length as a varint, then the bytes
+//   UNARY, BINARY                the operator's TokenType ordinal as a byte,
+//                                then its line as a varint
+//
+// Ordinals tie the format to TokenType, so reordering it means a new VERSION.
+final class ASTDump {
+
+	static final int MAGIC = 0x4A4C5854; // "JLXT"
+	static final int VERSION = 2;
+
+	static final byte END = 0;
+	static final byte NIL = 1;
+	static final byte TRUE = 2;
+	static final byte FALSE = 3;
+	static final byte NUMBER = 4;
+	static final byte STRING = 5;
+	static final byte GROUPING = 6;
+	static final byte UNARY = 7;
+	static final byte BINARY = 8;
+	static final byte INTEGER = 9;
+
+	private static final TokenType[] TYPES = TokenType.values();
+
+	private ASTDump() {
+	}
+
+	// Writes trees after a header. Each tree is encoded into a buffer of the
+	// Writer's own and handed to 'out' in one write. Not thread-safe; like
+	// the walker it is built on, it keeps its buffers between trees.
+	static final class Writer extends ExpressionWalker<Void> {
+
+		private final DataOutput out;
+		private byte[] buffer = new byte[256];
+		private int size = 0;
+
+		Writer(DataOutput out) throws IOException {
+			this.out = out;
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+		}
+
+		void write(Expression exp) throws IOException {
+			size = 0;
+			walk(exp);
+			put(END);
+			out.write(buffer, 0, size);
+		}
+
+		@Override
+		Void binary(Binary expression, Void left, Void right) {
+			operator(BINARY, expression.operator);
+			return null;
+		}
+
+		@Override
+		Void grouping(Grouping expression, Void inner) {
+			put(GROUPING);
+			return null;
+		}
+
+		@Override
+		Void literal(Literal expression) {
+			Object value = expression.value;
+			if (value == null) {
+				put(NIL);
+			}
+			else if (value instanceof Boolean) {
+				put((Boolean) value ? TRUE : FALSE);
+			}
+			else if (value instanceof Double) {
+				double number = (Double) value;
+				int whole = (int) number;
+				// -0.0 is whole but would come back as 0.0.
+				if (whole == number && (whole != 0 || 1 / number > 0)) {
+					put(INTEGER);
+					putVarint(whole << 1 ^ whole >> 31);
+				}
+				else {
+					put(NUMBER);
+					long bits = Double.doubleToRawLongBits(number);
+					for (int shift = 56; shift >= 0; shift -= 8) put((int) (bits >>> shift));
+				}
+			}
+			else if (value instanceof CharSequence) {
+				byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+				put(STRING);
+				putVarint(bytes.length);
+				reserve(bytes.length);
+				System.arraycopy(bytes, 0, buffer, size, bytes.length);
+				size += bytes.length;
+			}
+			else {
+				throw new IllegalArgumentException("No dump form for literal " + value);
+			}
+			return null;
+		}
+
+		@Override
+		Void unary(Unary expression, Void right) {
+			operator(UNARY, expression.operator);
+			return null;
+		}
+
+		private void operator(byte tag, Token operator) {
+			put(tag);
+			put(operator.GetType().ordinal());
+			putVarint(operator.GetLine());
+		}
+
+		// Seven bits at a time, low bits first, the high bit set on all but
+		// the last byte.
+		private void putVarint(int value) {
+			while ((value & ~0x7F) != 0) {
+				put((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			put(value);
+		}
+
+		private void put(int b) {
+			if (size == buffer.length) reserve(1);
+			buffer[size++] = (byte) b;
+		}
+
+		private void reserve(int bytes) {
+			if (buffer.length - size < bytes) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+			}
+		}
+	}
+
+	// Reads back what a Writer wrote, from a buffer such as a mapped file,
+	// building each tree on a NodeStack as the Parser would: as objects,
+	// shared through an interner, or into an arena. Operator Tokens get
+	// their type's usual spelling as their lexeme.
+	static final class Reader {
+
+		private final ByteBuffer in;
+
+		Reader(ByteBuffer in) throws IOException {
+			this.in = in.order(ByteOrder.BIG_ENDIAN);
+			try {
+				if (in.getInt() != MAGIC) throw new IOException("Not a tree dump");
+				int version = in.getInt();
+				if (version != VERSION) throw new IOException("Unsupported tree dump version " + version);
+			}
+			catch (BufferUnderflowException e) {
+				throw new IOException("Truncated tree dump");
+			}
+		}
+
+		// The next tree, or null at the end of the dump.
+		Expression read() throws IOException {
+			return read(Parser.TREE);
+		}
+
+		<N> N read(Parser.Nodes<N> nodes) throws IOException {
+			NodeStack.Tree<N> stack = new NodeStack.Tree<>(nodes);
+			return read(stack) ? stack.pop() : null;
+		}
+
+		// Leaves the next tree as the only node on the empty 'stack', or
+		// returns false at the end of the dump.
+		boolean read(NodeStack stack) throws IOException {
+			if (!in.hasRemaining()) return false;
+			try {
+				for (byte tag = in.get(); tag != END; tag = in.get()) {
+					switch (tag) {
+					case NIL:
+						stack.literal(null);
+						break;
+					case TRUE:
+						stack.literal(true);
+						break;
+					case FALSE:
+						stack.literal(false);
+						break;
+					case INTEGER:
+						int zigzag = readVarint(in);
+						stack.literal((double) (zigzag >>> 1 ^ -(zigzag & 1)));
+						break;
+					case NUMBER:
+						stack.literal(in.getDouble());
+						break;
+					case STRING:
+						int length = readVarint(in);
+						if (length < 0 || length > in.remaining()) {
+							throw new IOException("Bad tree dump string length " + length);
+						}
+						byte[] bytes = new byte[length];
+						in.get(bytes);
+						stack.literal(new String(bytes, StandardCharsets.UTF_8));
+						break;
+					case GROUPING:
+						operands(stack, 1);
+						stack.grouping();
+						break;
+					case UNARY:
+						operands(stack, 1);
+						stack.unary(operator());
+						break;
+					case BINARY:
+						operands(stack, 2);
+						stack.binary(operator());
+						break;
+					default:
+						throw new IOException("Bad tree dump tag " + tag);
+					}
+				}
+			}
+			catch (BufferUnderflowException e) {
+				throw new IOException("Truncated tree dump");
+			}
+			if (stack.size != 1) throw new IOException("Tree dump does not hold one tree");
+			return true;
+		}
+
+		private Token operator() throws IOException {
+			int ordinal = in.get() & 0xFF;
+			if (ordinal >= TYPES.length) throw new IOException("Bad tree dump operator " + ordinal);
+			TokenType type = TYPES[ordinal];
+			return new Token(type, type.spelling, null, readVarint(in));
+		}
+
+		private static void operands(NodeStack stack, int needed) throws IOException {
+			if (stack.size < needed) throw new IOException("Tree dump operator has too few operands");
+		}
+
+		private static int readVarint(ByteBuffer in) throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				byte b = in.get();
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) return value;
+			}
+			throw new IOException("Bad varint in tree dump");
+		}
+	}
+}
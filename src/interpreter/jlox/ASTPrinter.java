@@ -1,47 +1,96 @@
 package interpreter.jlox;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+
 import interpreter.jlox.Expression.Binary;
 import interpreter.jlox.Expression.Grouping;
 import interpreter.jlox.Expression.Literal;
 import interpreter.jlox.Expression.Unary;
 
-public class ASTPrinter implements Expression.Visitor<String> {
+// Prints an expression in prefix form, e.g. (* (- 1.0) (group (+ 2.0 3.0)))
+// for -1 * (2 + 3). The tree is walked with an explicit stack of pending
+// work, each entry either a node still to print or text to emit after it, so
+// any depth prints in one pass. A printer can write straight to any
+// Appendable, such as a Writer or PrintStream, through one buffer it keeps
+// between prints, so no String of the whole tree is ever built.
+public class ASTPrinter {
+
+	// Buffered text is handed to the Appendable once it reaches this size.
+	private static final int FLUSH = 8192;
+
+	private final ArrayList<Object> pending = new ArrayList<>();
+	private final StringBuilder buffer = new StringBuilder();
 
 	String print(Expression exp) {
-		return exp.accept(this);
-	}
-	
-	@Override
-	public String visitBinaryExpression(Binary expression) {
-		return parenthesize(expression.operator.GetLexeme(), 
-				expression.left, expression.right);
+		StringBuilder builder = new StringBuilder();
+		try {
+			walk(exp, builder, null);
+		}
+		catch (IOException e) {
+			// Only writing to an Appendable can fail.
+			throw new UncheckedIOException(e);
+		}
+		return builder.toString();
 	}
 
-	@Override
-	public String visitGroupingExpression(Grouping expression) {
-		return parenthesize("group", expression.expression);
+	// Writes the tree to 'out' with no line break after it.
+	void print(Expression exp, Appendable out) throws IOException {
+		if (out instanceof StringBuilder) {
+			walk(exp, (StringBuilder) out, null);
+			return;
+		}
+		buffer.setLength(0);
+		walk(exp, buffer, out);
+		out.append(buffer);
+		buffer.setLength(0);
 	}
 
-	@Override
-	public String visitLiteralExpression(Literal expression) {
-		return expression.value == null ? "nil" : expression.value.toString();
-	}
+	// Prints into 'builder', moving its text to 'out', when there is one,
+	// whenever it fills up.
+	private void walk(Expression exp, StringBuilder builder, Appendable out) throws IOException {
+		pending.clear();
+		pending.add(exp);
 
-	@Override
-	public String visitUnaryExpression(Unary expression) {
-		return parenthesize(expression.operator.GetLexeme(), expression.right);
+		while (!pending.isEmpty()) {
+			Object item = pending.remove(pending.size() - 1);
+			if (item instanceof String) {
+				builder.append((String) item);
+			}
+			else if (item instanceof Literal) {
+				Object value = ((Literal) item).value;
+				builder.append(value == null ? "nil" : value.toString());
+			}
+			else if (item instanceof Binary) {
+				Binary binary = (Binary) item;
+				parenthesize(builder, binary.operator.GetLexeme(), binary.left, binary.right);
+			}
+			else if (item instanceof Grouping) {
+				parenthesize(builder, "group", ((Grouping) item).expression, null);
+			}
+			else {
+				Unary unary = (Unary) item;
+				parenthesize(builder, unary.operator.GetLexeme(), unary.right, null);
+			}
+			if (out != null && builder.length() >= FLUSH) {
+				out.append(builder);
+				builder.setLength(0);
+			}
+		}
 	}
-	
-	private String parenthesize(String name, Expression... expressions) {
-		StringBuilder builder = new StringBuilder();
-		
+
+	// Opens "(name" and schedules " first [second])"; entries come off the
+	// end of the list, so they are added in reverse.
+	private void parenthesize(StringBuilder builder, String name, Expression first, Expression second) {
 		builder.append("(").append(name);
-		for (Expression exp : expressions) {
-			builder.append(" ");
-			builder.append(exp.accept(this));
+		pending.add(")");
+		if (second != null) {
+			pending.add(second);
+			pending.add(" ");
 		}
-		builder.append(")");
-		return builder.toString();
+		pending.add(first);
+		pending.add(" ");
 	}
 
 }
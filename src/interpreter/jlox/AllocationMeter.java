@@ -0,0 +1,21 @@
+package interpreter.jlox;
+
+import java.lang.management.ManagementFactory;
+
+// Bytes allocated by the calling thread, where the JVM can report it.
+class AllocationMeter {
+
+	private static final com.sun.management.ThreadMXBean threads = threadBean();
+
+	static long allocatedBytes() {
+		return threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+	}
+
+	private static com.sun.management.ThreadMXBean threadBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return (com.sun.management.ThreadMXBean) bean;
+		}
+		return null;
+	}
+}
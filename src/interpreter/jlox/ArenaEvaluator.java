@@ -0,0 +1,83 @@
+package interpreter.jlox;
+
+import java.util.Arrays;
+
+// Evaluates an ExpressionArena with the Interpreter's operator semantics.
+// Arena nodes are stored in postfix order, so a single pass over the indices
+// with a value stack evaluates the tree, operands left to right before their
+// operator, without recursing however deeply it nests.
+class ArenaEvaluator {
+
+	private final Console console;
+	private Object[] stack = new Object[16];
+
+	ArenaEvaluator() {
+		this(Console.standard());
+	}
+
+	ArenaEvaluator(Console console) {
+		this.console = console;
+	}
+
+	void interpret(ExpressionArena arena) {
+		try
+		{
+			Object value = evaluate(arena);
+			console.out.println(Interpreter.stringify(value));
+		}
+		catch(RuntimeError e) {
+			console.runtimeError(e);
+		}
+	}
+
+	Object evaluate(ExpressionArena arena) {
+		Object[] stack = this.stack;
+		int sp = 0;
+		try {
+			for (int node = 0; node < arena.count; node++) {
+				switch(arena.kinds[node]) {
+				case ExpressionArena.BINARY: {
+					Object rhs = stack[--sp];
+					stack[sp - 1] = binary(arena, node, stack[sp - 1], rhs);
+					break;
+				}
+				case ExpressionArena.GROUPING:
+					break;
+				case ExpressionArena.LITERAL:
+					if (sp == stack.length) {
+						stack = this.stack = Arrays.copyOf(stack, sp * 2);
+					}
+					stack[sp++] = arena.pool[arena.lefts[node]];
+					break;
+				case ExpressionArena.UNARY:
+					stack[sp - 1] = unary(arena, node, stack[sp - 1]);
+					break;
+				default:
+					throw new IllegalStateException("Unknown node kind " + arena.kinds[node]);
+				}
+			}
+			return stack[0];
+		}
+		finally {
+			Arrays.fill(stack, 0, sp, null);
+		}
+	}
+
+	private static Object binary(ExpressionArena arena, int node, Object lhs, Object rhs) {
+		try {
+			return Interpreter.binary(arena.operator(node), null, lhs, rhs);
+		}
+		catch(RuntimeError e) {
+			throw new RuntimeError(arena.operatorToken(node), e.getMessage());
+		}
+	}
+
+	private static Object unary(ExpressionArena arena, int node, Object right) {
+		try {
+			return Interpreter.unary(arena.operator(node), null, right);
+		}
+		catch(RuntimeError e) {
+			throw new RuntimeError(arena.operatorToken(node), e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package interpreter.jlox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Runs an input holding one independent expression per line. The lines are
+// cut into blocks that are scanned, parsed and evaluated on a ForkJoinPool,
+// each block in a Session of its own so that no state is shared between
+// threads. Finished blocks are written out in input order, a block's
+// out before its err. Only a bounded window of blocks is in flight, so output
+// starts early and memory does not grow with the input.
+class Batch {
+
+	static final int BLOCK_LINES = 256;
+
+	private final Engine engine;
+	private final int threads;
+
+	Batch(Engine engine, int threads) {
+		this.engine = engine;
+		this.threads = threads;
+	}
+
+	void run(String source, Session session) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			ArrayDeque<ForkJoinTask<Block>> window = new ArrayDeque<>();
+			int limit = threads * 4;
+			int start = 0;
+			int line = 1;
+			while (start < source.length() || !window.isEmpty()) {
+				while (start < source.length() && window.size() < limit) {
+					int from = start;
+					int to = blockEnd(source, start);
+					int first = line;
+					window.add(pool.submit(() -> runBlock(source, from, to, first)));
+					start = to;
+					line += BLOCK_LINES;
+				}
+				window.remove().join().writeTo(session.console);
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	private static int blockEnd(String source, int start) {
+		int end = start;
+		for (int lines = 0; lines < BLOCK_LINES; lines++) {
+			int newline = source.indexOf('\n', end);
+			if (newline < 0) return source.length();
+			end = newline + 1;
+		}
+		return end;
+	}
+
+	private Block runBlock(String source, int start, int end, int line) {
+		Block block = new Block();
+		Session session = new Session(engine, block.console);
+		Console console = block.console;
+
+		while (start < end) {
+			int newline = source.indexOf('\n', start);
+			int stop = newline < 0 || newline >= end ? end : newline;
+			if (!blank(source, start, stop)) {
+				console.hadError = false;
+				session.run(source.substring(start, stop), line);
+				block.hadError |= console.hadError;
+			}
+			start = stop + 1;
+			line++;
+		}
+		return block;
+	}
+
+	private static boolean blank(String source, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = source.charAt(i);
+			if (c != ' ' && c != '\t' && c != '\r') return false;
+		}
+		return true;
+	}
+
+	private static class Block {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final ByteArrayOutputStream err = new ByteArrayOutputStream();
+		final Console console = new Console(new PrintStream(out), new PrintStream(err));
+		boolean hadError = false;
+
+		void writeTo(Console target) {
+			console.out.flush();
+			console.err.flush();
+			target.out.write(out.toByteArray(), 0, out.size());
+			target.err.write(err.toByteArray(), 0, err.size());
+			target.hadError |= hadError;
+			target.hadRuntimeError |= console.hadRuntimeError;
+		}
+	}
+}
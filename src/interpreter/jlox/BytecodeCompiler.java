@@ -0,0 +1,99 @@
+package interpreter.jlox;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+public class BytecodeCompiler extends ExpressionWalker<Void> {
+
+	private Chunk chunk;
+	private int depth;
+
+	Chunk compile(Expression exp) {
+		chunk = new Chunk();
+		depth = 0;
+		walk(exp);
+		emit(Chunk.OP_RETURN, null, -1);
+		chunk.seal();
+		Chunk result = chunk;
+		chunk = null;
+		return result;
+	}
+
+	@Override
+	Void binary(Binary expression, Void left, Void right) {
+		switch(expression.operator.GetType()) {
+		case GREATER_THAN: emit(Chunk.OP_GREATER, expression.operator, -1); break;
+		case GREATER_THAN_EQUAL: emit(Chunk.OP_GREATER_EQUAL, expression.operator, -1); break;
+		case LESS_THAN: emit(Chunk.OP_LESS, expression.operator, -1); break;
+		case LESS_THAN_EQUAL: emit(Chunk.OP_LESS_EQUAL, expression.operator, -1); break;
+		case MINUS: emit(Chunk.OP_SUBTRACT, expression.operator, -1); break;
+		case PLUS: emit(Chunk.OP_ADD, expression.operator, -1); break;
+		case SLASH: emit(Chunk.OP_DIVIDE, expression.operator, -1); break;
+		case MOD: emit(Chunk.OP_MOD, expression.operator, -1); break;
+		case STAR: emit(Chunk.OP_MULTIPLY, expression.operator, -1); break;
+		case NOT_EQUAL: emit(Chunk.OP_NOT_EQUAL, expression.operator, -1); break;
+		case EQUAL_EQUAL: emit(Chunk.OP_EQUAL, expression.operator, -1); break;
+		default:
+			// The tree-walker yields nil for operators it does not know.
+			emit(Chunk.OP_POP, null, -1);
+			emit(Chunk.OP_POP, null, -1);
+			emit(Chunk.OP_NIL, null, 1);
+			break;
+		}
+		return null;
+	}
+
+	@Override
+	Void grouping(Grouping expression, Void inner) {
+		return null;
+	}
+
+	@Override
+	Void literal(Literal expression) {
+		Object value = expression.value;
+		if (value == null) {
+			emit(Chunk.OP_NIL, null, 1);
+		}
+		else if (value instanceof Boolean) {
+			emit((boolean) value ? Chunk.OP_TRUE : Chunk.OP_FALSE, null, 1);
+		}
+		else {
+			int index = chunk.addConstant(value);
+			if (index <= 0xFFFF) {
+				emit(Chunk.OP_CONSTANT, null, 1);
+			}
+			else {
+				emit(Chunk.OP_CONSTANT_LONG, null, 1);
+				chunk.write((byte) (index >> 24), null);
+				chunk.write((byte) (index >> 16), null);
+			}
+			chunk.write((byte) (index >> 8), null);
+			chunk.write((byte) index, null);
+		}
+		return null;
+	}
+
+	@SuppressWarnings("incomplete-switch")
+	@Override
+	Void unary(Unary expression, Void right) {
+		switch(expression.operator.GetType()) {
+		case NOT:
+			emit(Chunk.OP_NOT, expression.operator, 0);
+			return null;
+		case MINUS:
+			emit(Chunk.OP_NEGATE, expression.operator, 0);
+			return null;
+		}
+		emit(Chunk.OP_POP, null, -1);
+		emit(Chunk.OP_NIL, null, 1);
+		return null;
+	}
+
+	private void emit(byte op, Token token, int stackEffect) {
+		chunk.write(op, token);
+		depth += stackEffect;
+		if (depth > chunk.maxStack) chunk.maxStack = depth;
+	}
+}
@@ -0,0 +1,145 @@
+package interpreter.jlox;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Output for a Console, out and err, that reaches its channels in large
+// writes instead of one per line. Each stream fills a buffer of its own, and
+// a buffer is written out when it is full, when output has waited for the
+// flush interval, or on flush().
+//
+// Writing to either stream first flushes whatever the other holds, so the
+// channels see results and diagnostics in the order they were written, as
+// they would unbuffered. Runs that report few errors still write their
+// results in big batches.
+final class ChannelOutput {
+
+	static final int BUFFER = 1 << 20;
+	static final long FLUSH_MILLIS = 100;
+
+	private final Sink out;
+	private final Sink err;
+	private final PrintStream outStream;
+	private final PrintStream errStream;
+	private final ScheduledExecutorService timer;
+
+	// The channels stay open; whoever opened them closes them.
+	ChannelOutput(WritableByteChannel out, WritableByteChannel err, int buffer, long flushMillis) {
+		this.out = new Sink(out, buffer);
+		this.err = new Sink(err, buffer);
+		this.out.other = this.err;
+		this.err.other = this.out;
+		this.outStream = new PrintStream(this.out, false, Charset.defaultCharset());
+		this.errStream = new PrintStream(this.err, false, Charset.defaultCharset());
+		timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "jlox-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+	}
+
+	// On the process's standard output and error.
+	static ChannelOutput standard() {
+		return new ChannelOutput(new FileOutputStream(FileDescriptor.out).getChannel(),
+				new FileOutputStream(FileDescriptor.err).getChannel(), BUFFER, FLUSH_MILLIS);
+	}
+
+	PrintStream out() {
+		return outStream;
+	}
+
+	PrintStream err() {
+		return errStream;
+	}
+
+	// Text still inside the PrintStreams' encoders is pushed down first.
+	void flush() {
+		outStream.flush();
+		errStream.flush();
+	}
+
+	// Flushes for the last time and stops the timer.
+	void close() {
+		timer.shutdown();
+		flush();
+	}
+
+	private void flushQuietly() {
+		synchronized (this) {
+			try {
+				out.drain();
+				err.drain();
+			}
+			catch (IOException e) {
+				// Reported by the PrintStreams' checkError() on their next write.
+			}
+		}
+	}
+
+	// Both sinks lock the ChannelOutput, so a write and the flush of the
+	// other stream it triggers happen as one step.
+	private final class Sink extends OutputStream {
+
+		private final WritableByteChannel channel;
+		private final ByteBuffer buffer;
+		Sink other;
+
+		Sink(WritableByteChannel channel, int size) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocateDirect(size);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			synchronized (ChannelOutput.this) {
+				if (other.buffer.position() > 0) other.drain();
+				if (!buffer.hasRemaining()) drain();
+				buffer.put((byte) b);
+			}
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			synchronized (ChannelOutput.this) {
+				if (other.buffer.position() > 0) other.drain();
+				if (length > buffer.remaining()) drain();
+				if (length > buffer.capacity()) {
+					// Too big to buffer; written straight through.
+					ByteBuffer whole = ByteBuffer.wrap(bytes, offset, length);
+					while (whole.hasRemaining()) channel.write(whole);
+				}
+				else {
+					buffer.put(bytes, offset, length);
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (ChannelOutput.this) {
+				drain();
+			}
+		}
+
+		void drain() throws IOException {
+			if (buffer.position() == 0) return;
+			buffer.flip();
+			try {
+				while (buffer.hasRemaining()) channel.write(buffer);
+			}
+			finally {
+				buffer.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package interpreter.jlox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compiled form of an Expression: a flat bytecode array plus its constant pool.
+// tokens runs parallel to code so the VM can raise a RuntimeError with the
+// same operator Token the tree-walker would have used.
+class Chunk {
+
+	static final byte OP_CONSTANT = 0;
+	static final byte OP_NIL = 1;
+	static final byte OP_TRUE = 2;
+	static final byte OP_FALSE = 3;
+	static final byte OP_POP = 4;
+	static final byte OP_ADD = 5;
+	static final byte OP_SUBTRACT = 6;
+	static final byte OP_MULTIPLY = 7;
+	static final byte OP_DIVIDE = 8;
+	static final byte OP_MOD = 9;
+	static final byte OP_GREATER = 10;
+	static final byte OP_GREATER_EQUAL = 11;
+	static final byte OP_LESS = 12;
+	static final byte OP_LESS_EQUAL = 13;
+	static final byte OP_EQUAL = 14;
+	static final byte OP_NOT_EQUAL = 15;
+	static final byte OP_NOT = 16;
+	static final byte OP_NEGATE = 17;
+	static final byte OP_RETURN = 18;
+	// OP_CONSTANT with a 4-byte index, for chunks of more than 65536 constants.
+	static final byte OP_CONSTANT_LONG = 19;
+
+	byte[] code = new byte[16];
+	Token[] tokens = new Token[16];
+	int count = 0;
+	int maxStack = 0;
+	Object[] constants;
+
+	private final List<Object> pool = new ArrayList<>();
+	private final Map<Object, Integer> poolIndex = new HashMap<>();
+
+	void write(byte op, Token token) {
+		if (count == code.length) {
+			code = Arrays.copyOf(code, count * 2);
+			tokens = Arrays.copyOf(tokens, count * 2);
+		}
+		code[count] = op;
+		tokens[count] = token;
+		count++;
+	}
+
+	int addConstant(Object value) {
+		Integer index = poolIndex.get(value);
+		if (index != null) return index;
+		pool.add(value);
+		poolIndex.put(value, pool.size() - 1);
+		return pool.size() - 1;
+	}
+
+	void seal() {
+		constants = pool.toArray();
+	}
+}
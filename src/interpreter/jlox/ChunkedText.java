@@ -0,0 +1,114 @@
+package interpreter.jlox;
+
+import java.util.Arrays;
+
+// Editable text held as a row of short Strings, so that replacing a few
+// characters rewrites only the chunks around them rather than copying the
+// whole text. Reads that move forward through it, as the Scanner's do, stay
+// in the same chunk and cost one range check per character.
+final class ChunkedText implements CharSequence {
+
+	// Chunks are cut to this size, and rewritten chunks that end up less
+	// than half of it are merged with the one after.
+	private static final int CHUNK = 4096;
+
+	private String[] chunks = new String[16];
+	// Where each chunk starts in the whole text.
+	private int[] starts = new int[16];
+	private int count = 0;
+	private int length = 0;
+	// The chunk charAt() last read from.
+	private int last = 0;
+	private String flat;
+
+	ChunkedText(String text) {
+		replace(0, 0, text);
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		int chunk = last;
+		if (chunk >= count || index < starts[chunk] || index >= starts[chunk] + chunks[chunk].length()) {
+			if (index < 0 || index >= length) throw new IndexOutOfBoundsException(index);
+			chunk = chunkOf(index);
+			last = chunk;
+		}
+		return chunks[chunk].charAt(index - starts[chunk]);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) throw new IndexOutOfBoundsException(start);
+		StringBuilder builder = new StringBuilder(end - start);
+		for (int chunk = start == end ? count : chunkOf(start); chunk < count && starts[chunk] < end; chunk++) {
+			String text = chunks[chunk];
+			int from = Math.max(start - starts[chunk], 0);
+			int to = Math.min(end - starts[chunk], text.length());
+			builder.append(text, from, to);
+		}
+		return builder.toString();
+	}
+
+	// Built once per version of the text.
+	@Override
+	public String toString() {
+		if (flat == null) flat = subSequence(0, length).toString();
+		return flat;
+	}
+
+	// Replaces 'removed' characters at 'offset' with 'inserted'.
+	void replace(int offset, int removed, String inserted) {
+		// The chunks holding the replaced range, or the one it is next to.
+		int first = count == 0 ? 0 : chunkOf(Math.min(offset, length - 1));
+		if (first > 0 && offset == starts[first]) first--;
+		int end = offset + removed;
+		int after = first;
+		while (after < count && starts[after] < end) after++;
+		if (after == first && after < count) after++;
+
+		String rewritten;
+		if (after == first) {
+			rewritten = inserted;
+		}
+		else {
+			String head = chunks[first].substring(0, offset - starts[first]);
+			String tail = chunks[after - 1].substring(end - starts[after - 1]);
+			rewritten = head + inserted + tail;
+		}
+		if (rewritten.length() < CHUNK / 2 && after < count) {
+			rewritten += chunks[after++];
+		}
+
+		int pieces = (rewritten.length() + CHUNK - 1) / CHUNK;
+		int size = count - (after - first) + pieces;
+		if (size > chunks.length) {
+			chunks = Arrays.copyOf(chunks, Math.max(size, chunks.length * 2));
+			starts = Arrays.copyOf(starts, chunks.length);
+		}
+		System.arraycopy(chunks, after, chunks, first + pieces, count - after);
+		if (size < count) Arrays.fill(chunks, size, count, null);
+		// Cut evenly, so no piece is left much shorter than the rest.
+		for (int i = 0; i < pieces; i++) {
+			int from = (int) ((long) rewritten.length() * i / pieces);
+			int to = (int) ((long) rewritten.length() * (i + 1) / pieces);
+			chunks[first + i] = rewritten.substring(from, to);
+		}
+		count = size;
+		length += inserted.length() - removed;
+		for (int i = first; i < count; i++) {
+			starts[i] = i == 0 ? 0 : starts[i - 1] + chunks[i - 1].length();
+		}
+		last = 0;
+		flat = null;
+	}
+
+	private int chunkOf(int index) {
+		int chunk = Arrays.binarySearch(starts, 0, count, index);
+		return chunk >= 0 ? chunk : -chunk - 2;
+	}
+}
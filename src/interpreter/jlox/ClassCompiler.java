@@ -0,0 +1,743 @@
+package interpreter.jlox;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+// Compiles an Expression into a JVM class of its own, for trees run often
+// enough that HotSpot compiling them as ordinary code beats walking them; see
+// Program.compiled. The class file is written out here byte by byte, as a
+// Java 5 one so it needs no stack maps, and defined as a hidden class. Nothing
+// holds a hidden class but its instances, so once the Compiled is dropped the
+// JVM unloads the class with it.
+//
+// Values the tree says are numbers or booleans stay unboxed, as doubles and
+// ints in locals. Everything else, and every operator applied to it, goes
+// through the Interpreter's own static methods, so errors and their Tokens,
+// string +, equal and truthy are exactly the Interpreter's. Each method takes
+// at most METHOD_NODES nodes, small enough for HotSpot to compile it.
+final class ClassCompiler {
+
+	interface Compiled {
+		Object evaluate();
+	}
+
+	// Bigger trees are left to the Interpreter.
+	static final int MAX_NODES = 1 << 17;
+	// HotSpot does not compile methods of more than 8000 bytes of bytecode,
+	// and a node takes up to about 40.
+	private static final int METHOD_NODES = 150;
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private static final String CLASS = "interpreter/jlox/Compiled";
+	private static final String INTERPRETER = "interpreter/jlox/Interpreter";
+	private static final String TOKEN = "interpreter/jlox/Token";
+	private static final String RUNTIME_ERROR = "interpreter/jlox/RuntimeError";
+	private static final String OBJECT = "java/lang/Object";
+	private static final String OBJECTS = "[Ljava/lang/Object;";
+	// The one static field, holding the Tokens and any literal values that
+	// cannot be class file constants.
+	private static final String CONSTANTS = "K";
+
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_PRIVATE = 0x0002;
+	private static final int ACC_STATIC = 0x0008;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int ACONST_NULL = 0x01;
+	private static final int ICONST_0 = 0x03;
+	private static final int ICONST_1 = 0x04;
+	private static final int DCONST_0 = 0x0e;
+	private static final int DCONST_1 = 0x0f;
+	private static final int SIPUSH = 0x11;
+	private static final int LDC = 0x12;
+	private static final int LDC_W = 0x13;
+	private static final int LDC2_W = 0x14;
+	private static final int ILOAD = 0x15;
+	private static final int DLOAD = 0x18;
+	private static final int ALOAD = 0x19;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int AALOAD = 0x32;
+	private static final int ISTORE = 0x36;
+	private static final int DSTORE = 0x39;
+	private static final int ASTORE = 0x3a;
+	private static final int DUP = 0x59;
+	private static final int DADD = 0x63;
+	private static final int DSUB = 0x67;
+	private static final int DMUL = 0x6b;
+	private static final int DDIV = 0x6f;
+	private static final int DREM = 0x73;
+	private static final int DNEG = 0x77;
+	private static final int IXOR = 0x82;
+	private static final int LCMP = 0x94;
+	private static final int DCMPL = 0x97;
+	private static final int DCMPG = 0x98;
+	private static final int IFEQ = 0x99;
+	private static final int IFNE = 0x9a;
+	private static final int IFLT = 0x9b;
+	private static final int IFGE = 0x9c;
+	private static final int IFGT = 0x9d;
+	private static final int IFLE = 0x9e;
+	private static final int GOTO = 0xa7;
+	private static final int IRETURN = 0xac;
+	private static final int DRETURN = 0xaf;
+	private static final int ARETURN = 0xb0;
+	private static final int RETURN = 0xb1;
+	private static final int GETSTATIC = 0xb2;
+	private static final int INVOKEVIRTUAL = 0xb6;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKESTATIC = 0xb8;
+	private static final int NEW = 0xbb;
+	private static final int ATHROW = 0xbf;
+	private static final int CHECKCAST = 0xc0;
+	private static final int WIDE = 0xc4;
+
+	// Enough for the deepest sequence emitted: a Token, a boxed operand and
+	// an unboxed double.
+	private static final int MAX_STACK = 4;
+
+	// How a value is held: unboxed whenever the tree says what it is.
+	private enum Kind {
+		NUMBER("D", DLOAD, DSTORE, DRETURN, 2),
+		BOOLEAN("Z", ILOAD, ISTORE, IRETURN, 1),
+		ANY("Ljava/lang/Object;", ALOAD, ASTORE, ARETURN, 1);
+
+		final String descriptor;
+		final int load;
+		final int store;
+		final int ret;
+		final int slots;
+
+		Kind(String descriptor, int load, int store, int ret, int slots) {
+			this.descriptor = descriptor;
+			this.load = load;
+			this.store = store;
+			this.ret = ret;
+			this.slots = slots;
+		}
+	}
+
+	// A node's value: a constant, emitted wherever it is used, or a local.
+	private static final class Value {
+		final Kind kind;
+		final int slot;
+		final Object constant;
+
+		Value(Kind kind, int slot, Object constant) {
+			this.kind = kind;
+			this.slot = slot;
+			this.constant = constant;
+		}
+	}
+
+	private static final class Method {
+		final Bytes code = new Bytes();
+		int locals = 0;
+		Kind returns;
+	}
+
+	private final Pool pool = new Pool();
+	private final List<Object> constants = new ArrayList<>();
+	// Subtrees that get a method of their own.
+	private final Set<Expression> split = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final List<Method> open = new ArrayList<>();
+	private final List<Method> finished = new ArrayList<>();
+	private final List<Value> values = new ArrayList<>();
+	private Expression[] pending = new Expression[16];
+	private boolean[] expanded = new boolean[16];
+	private int pendingCount = 0;
+	private int nodes = 0;
+	// Set when some limit of the class file format is passed.
+	private boolean tooLarge = false;
+
+	// The tree as a Compiled, or null if it is too big to compile.
+	Compiled compile(Expression tree) {
+		new Splitter().walk(tree);
+		if (nodes > MAX_NODES) return null;
+
+		open.add(new Method());
+		push(tree);
+		while (pendingCount > 0) {
+			int top = pendingCount - 1;
+			Expression exp = pending[top];
+			if (exp instanceof Literal) {
+				pendingCount--;
+				values.add(constant(((Literal) exp).value));
+			}
+			else if (!expanded[top]) {
+				// Right is pushed first so that left is compiled, and run, first.
+				expanded[top] = true;
+				if (split.contains(exp)) open.add(new Method());
+				if (exp instanceof Binary) {
+					push(((Binary) exp).right);
+					push(((Binary) exp).left);
+				}
+				else if (exp instanceof Grouping) {
+					push(((Grouping) exp).expression);
+				}
+				else {
+					push(((Unary) exp).right);
+				}
+			}
+			else {
+				pendingCount--;
+				Value value;
+				if (exp instanceof Binary) {
+					Value right = values.remove(values.size() - 1);
+					Value left = values.remove(values.size() - 1);
+					value = binary((Binary) exp, left, right);
+				}
+				else if (exp instanceof Grouping) {
+					value = values.remove(values.size() - 1);
+				}
+				else {
+					value = unary((Unary) exp, values.remove(values.size() - 1));
+				}
+				if (split.contains(exp)) value = call(finish(value));
+				values.add(value);
+			}
+		}
+		int root = finish(values.remove(0));
+
+		byte[] bytes = assemble(root);
+		if (tooLarge) return null;
+		try {
+			MethodHandles.Lookup lookup = LOOKUP.defineHiddenClass(bytes, true);
+			lookup.findStaticVarHandle(lookup.lookupClass(), CONSTANTS, Object[].class).set(constants.toArray());
+			return (Compiled) lookup.lookupClass().getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException | LinkageError e) {
+			// The tree still runs, walked.
+			return null;
+		}
+	}
+
+	private void push(Expression exp) {
+		if (pendingCount == pending.length) {
+			pending = Arrays.copyOf(pending, pendingCount * 2);
+			expanded = Arrays.copyOf(expanded, pendingCount * 2);
+		}
+		pending[pendingCount] = exp;
+		expanded[pendingCount] = false;
+		pendingCount++;
+	}
+
+	private Value binary(Binary exp, Value left, Value right) {
+		Token operator = exp.operator;
+		boolean numbers = left.kind == Kind.NUMBER && right.kind == Kind.NUMBER;
+		switch (operator.GetType()) {
+		case PLUS:
+			return numbers ? arithmetic(DADD, left, right) : general(operator, left, right, Kind.ANY);
+		case MINUS:
+			return numbers ? arithmetic(DSUB, left, right) : general(operator, left, right, Kind.NUMBER);
+		case STAR:
+			return numbers ? arithmetic(DMUL, left, right) : general(operator, left, right, Kind.NUMBER);
+		case SLASH:
+			if (!numbers) return general(operator, left, right, Kind.NUMBER);
+			checkDivisor(operator, right, "Division by 0 error");
+			return arithmetic(DDIV, left, right);
+		case MOD:
+			if (!numbers) return general(operator, left, right, Kind.NUMBER);
+			checkDivisor(operator, right, "Mod by 0 error");
+			return arithmetic(DREM, left, right);
+		// The branches are the ones javac uses, so NaN compares false.
+		case GREATER_THAN:
+			return numbers ? compare(DCMPL, IFLE, left, right) : general(operator, left, right, Kind.BOOLEAN);
+		case GREATER_THAN_EQUAL:
+			return numbers ? compare(DCMPL, IFLT, left, right) : general(operator, left, right, Kind.BOOLEAN);
+		case LESS_THAN:
+			return numbers ? compare(DCMPG, IFGE, left, right) : general(operator, left, right, Kind.BOOLEAN);
+		case LESS_THAN_EQUAL:
+			return numbers ? compare(DCMPG, IFGT, left, right) : general(operator, left, right, Kind.BOOLEAN);
+		case EQUAL_EQUAL:
+			return equal(left, right, true);
+		case NOT_EQUAL:
+			return equal(left, right, false);
+		default:
+			// The Interpreter yields nil for operators it does not know.
+			return constant(null);
+		}
+	}
+
+	@SuppressWarnings("incomplete-switch")
+	private Value unary(Unary exp, Value right) {
+		Bytes code = code();
+		switch (exp.operator.GetType()) {
+		case NOT:
+			// A number is always truthy.
+			if (right.kind == Kind.NUMBER) return constant(false);
+			if (right.kind == Kind.BOOLEAN) {
+				load(right);
+			}
+			else {
+				load(right);
+				code.u1(INVOKESTATIC).u2(pool.method(INTERPRETER, "truthy", "(Ljava/lang/Object;)Z"));
+			}
+			code.u1(ICONST_1).u1(IXOR);
+			return store(Kind.BOOLEAN);
+		case MINUS:
+			if (right.kind == Kind.NUMBER) {
+				load(right);
+				code.u1(DNEG);
+				return store(Kind.NUMBER);
+			}
+			loadToken(exp.operator);
+			loadBoxed(right);
+			code.u1(INVOKESTATIC).u2(pool.method(INTERPRETER, "unary",
+					"(L" + TOKEN + ";Ljava/lang/Object;)Ljava/lang/Object;"));
+			return unbox(Kind.NUMBER);
+		}
+		return constant(null);
+	}
+
+	private Value arithmetic(int opcode, Value left, Value right) {
+		load(left);
+		load(right);
+		code().u1(opcode);
+		return store(Kind.NUMBER);
+	}
+
+	private Value compare(int opcode, int ifFalse, Value left, Value right) {
+		load(left);
+		load(right);
+		code().u1(opcode);
+		return bool(ifFalse);
+	}
+
+	// Double.equals for numbers, which is what Interpreter.equal comes to.
+	private Value equal(Value left, Value right, boolean equal) {
+		Bytes code = code();
+		if (left.kind == Kind.NUMBER && right.kind == Kind.NUMBER) {
+			int bits = pool.method("java/lang/Double", "doubleToLongBits", "(D)J");
+			load(left);
+			code.u1(INVOKESTATIC).u2(bits);
+			load(right);
+			code.u1(INVOKESTATIC).u2(bits);
+			code.u1(LCMP);
+			return bool(equal ? IFNE : IFEQ);
+		}
+		if (left.kind == Kind.BOOLEAN && right.kind == Kind.BOOLEAN) {
+			// Their exclusive or is whether they differ.
+			load(left);
+			load(right);
+			code.u1(IXOR);
+			if (equal) code.u1(ICONST_1).u1(IXOR);
+			return store(Kind.BOOLEAN);
+		}
+		if (left.kind != Kind.ANY && right.kind != Kind.ANY) {
+			// A number and a boolean.
+			return constant(!equal);
+		}
+		loadBoxed(left);
+		loadBoxed(right);
+		code.u1(INVOKESTATIC).u2(pool.method(INTERPRETER, "equal", "(Ljava/lang/Object;Ljava/lang/Object;)Z"));
+		if (!equal) code.u1(ICONST_1).u1(IXOR);
+		return store(Kind.BOOLEAN);
+	}
+
+	// Interpreter.binary itself, for operands of types the tree leaves open.
+	private Value general(Token operator, Value left, Value right, Kind result) {
+		loadToken(operator);
+		loadBoxed(left);
+		loadBoxed(right);
+		code().u1(INVOKESTATIC).u2(pool.method(INTERPRETER, "binary",
+				"(L" + TOKEN + ";Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;"));
+		return unbox(result);
+	}
+
+	private void checkDivisor(Token operator, Value divisor, String message) {
+		Bytes code = code();
+		load(divisor);
+		code.u1(DCONST_0).u1(DCMPL);
+		int branch = code.length;
+		code.u1(IFNE).u2(0);
+		code.u1(NEW).u2(pool.type(RUNTIME_ERROR)).u1(DUP);
+		loadToken(operator);
+		ldc(pool.string(message));
+		code.u1(INVOKESPECIAL).u2(pool.method(RUNTIME_ERROR, "<init>", "(L" + TOKEN + ";Ljava/lang/String;)V"));
+		code.u1(ATHROW);
+		code.patch(branch + 1, code.length - branch);
+	}
+
+	// Turns the int comparison on the stack into a boolean.
+	private Value bool(int ifFalse) {
+		code().u1(ifFalse).u2(7).u1(ICONST_1).u1(GOTO).u2(4).u1(ICONST_0);
+		return store(Kind.BOOLEAN);
+	}
+
+	// The Interpreter's result on the stack, for a result of the given kind.
+	private Value unbox(Kind kind) {
+		Bytes code = code();
+		if (kind == Kind.NUMBER) {
+			code.u1(CHECKCAST).u2(pool.type("java/lang/Double"));
+			code.u1(INVOKEVIRTUAL).u2(pool.method("java/lang/Double", "doubleValue", "()D"));
+		}
+		else if (kind == Kind.BOOLEAN) {
+			code.u1(CHECKCAST).u2(pool.type("java/lang/Boolean"));
+			code.u1(INVOKEVIRTUAL).u2(pool.method("java/lang/Boolean", "booleanValue", "()Z"));
+		}
+		return store(kind);
+	}
+
+	private static Value constant(Object value) {
+		Kind kind = value instanceof Double ? Kind.NUMBER : value instanceof Boolean ? Kind.BOOLEAN : Kind.ANY;
+		return new Value(kind, -1, value);
+	}
+
+	private Value store(Kind kind) {
+		Method method = open.get(open.size() - 1);
+		int slot = method.locals;
+		method.locals += kind.slots;
+		local(kind.store, slot);
+		return new Value(kind, slot, null);
+	}
+
+	private void load(Value value) {
+		if (value.slot >= 0) {
+			local(value.kind.load, value.slot);
+			return;
+		}
+		Bytes code = code();
+		Object constant = value.constant;
+		if (value.kind == Kind.NUMBER) {
+			double number = (Double) constant;
+			if (Double.doubleToRawLongBits(number) == 0) code.u1(DCONST_0);
+			else if (number == 1) code.u1(DCONST_1);
+			else code.u1(LDC2_W).u2(pool.number(number));
+		}
+		else if (value.kind == Kind.BOOLEAN) {
+			code.u1((Boolean) constant ? ICONST_1 : ICONST_0);
+		}
+		else if (constant == null) {
+			code.u1(ACONST_NULL);
+		}
+		else if (constant instanceof String && ((String) constant).length() <= Bytes.MAX_UTF / 3) {
+			ldc(pool.string((String) constant));
+		}
+		else {
+			loadConstant(constant);
+		}
+	}
+
+	private void loadBoxed(Value value) {
+		load(value);
+		if (value.kind == Kind.NUMBER) {
+			code().u1(INVOKESTATIC).u2(pool.method("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;"));
+		}
+		else if (value.kind == Kind.BOOLEAN) {
+			code().u1(INVOKESTATIC).u2(pool.method("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;"));
+		}
+	}
+
+	private void loadToken(Token token) {
+		loadConstant(token);
+		code().u1(CHECKCAST).u2(pool.type(TOKEN));
+	}
+
+	private void loadConstant(Object constant) {
+		int index = constants.size();
+		constants.add(constant);
+		code().u1(GETSTATIC).u2(pool.field(CLASS, CONSTANTS, OBJECTS));
+		if (index <= Short.MAX_VALUE) code().u1(SIPUSH).u2(index);
+		else ldc(pool.integer(index));
+		code().u1(AALOAD);
+	}
+
+	private void ldc(int index) {
+		if (index <= 0xff) code().u1(LDC).u1(index);
+		else code().u1(LDC_W).u2(index);
+	}
+
+	private void local(int opcode, int slot) {
+		if (slot <= 0xff) code().u1(opcode).u1(slot);
+		else code().u1(WIDE).u1(opcode).u2(slot);
+	}
+
+	private Bytes code() {
+		return open.get(open.size() - 1).code;
+	}
+
+	// Ends the innermost open method with 'value' as its result, and returns
+	// its number.
+	private int finish(Value value) {
+		load(value);
+		Method method = open.remove(open.size() - 1);
+		method.code.u1(value.kind.ret);
+		method.returns = value.kind;
+		finished.add(method);
+		return finished.size() - 1;
+	}
+
+	private Value call(int number) {
+		Method method = finished.get(number);
+		code().u1(INVOKESTATIC).u2(pool.method(CLASS, "m" + number, "()" + method.returns.descriptor));
+		return store(method.returns);
+	}
+
+	private byte[] assemble(int root) {
+		// Every constant first, since the pool comes before what uses it.
+		int self = pool.type(CLASS);
+		int superclass = pool.type(OBJECT);
+		int compiled = pool.type("interpreter/jlox/ClassCompiler$Compiled");
+		int objectInit = pool.method(OBJECT, "<init>", "()V");
+		int rootMethod = pool.method(CLASS, "m" + root, "()" + finished.get(root).returns.descriptor);
+		int box = 0;
+		if (finished.get(root).returns == Kind.NUMBER) {
+			box = pool.method("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;");
+		}
+		else if (finished.get(root).returns == Kind.BOOLEAN) {
+			box = pool.method("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+		}
+		int codeName = pool.utf8("Code");
+		int constantsName = pool.utf8(CONSTANTS);
+		int constantsType = pool.utf8(OBJECTS);
+		int init = pool.utf8("<init>");
+		int initType = pool.utf8("()V");
+		int evaluate = pool.utf8("evaluate");
+		int evaluateType = pool.utf8("()Ljava/lang/Object;");
+		int[] names = new int[finished.size()];
+		int[] types = new int[finished.size()];
+		for (int i = 0; i < finished.size(); i++) {
+			names[i] = pool.utf8("m" + i);
+			types[i] = pool.utf8("()" + finished.get(i).returns.descriptor);
+		}
+		if (pool.count > 0xffff) tooLarge = true;
+
+		Bytes out = new Bytes();
+		out.u4(0xcafebabe).u2(0).u2(49);
+		out.u2(pool.count).append(pool.bytes);
+		out.u2(ACC_FINAL | ACC_SUPER).u2(self).u2(superclass);
+		out.u2(1).u2(compiled);
+		out.u2(1).u2(ACC_STATIC).u2(constantsName).u2(constantsType).u2(0);
+
+		out.u2(2 + finished.size());
+		Bytes body = new Bytes().u1(ALOAD_0).u1(INVOKESPECIAL).u2(objectInit).u1(RETURN);
+		method(out, ACC_PUBLIC, init, initType, codeName, 1, 1, body);
+		body = new Bytes().u1(INVOKESTATIC).u2(rootMethod);
+		if (box != 0) body.u1(INVOKESTATIC).u2(box);
+		body.u1(ARETURN);
+		method(out, ACC_PUBLIC, evaluate, evaluateType, codeName, 2, 1, body);
+		for (int i = 0; i < finished.size(); i++) {
+			Method method = finished.get(i);
+			if (method.code.length > 0xffff || method.locals > 0xffff) tooLarge = true;
+			method(out, ACC_PRIVATE | ACC_STATIC, names[i], types[i], codeName, MAX_STACK, method.locals, method.code);
+		}
+		out.u2(0);
+		return out.toByteArray();
+	}
+
+	private static void method(Bytes out, int access, int name, int type, int codeName, int stack, int locals,
+			Bytes code) {
+		out.u2(access).u2(name).u2(type).u2(1);
+		out.u2(codeName).u4(12 + code.length).u2(stack).u2(locals);
+		out.u4(code.length).append(code).u2(0).u2(0);
+	}
+
+	// Weighs each subtree by the nodes that would go in its method, and
+	// splits off the children of any that would take more than METHOD_NODES.
+	private final class Splitter extends ExpressionWalker<Integer> {
+
+		@Override
+		Integer binary(Binary expression, Integer left, Integer right) {
+			nodes++;
+			if (1 + left + right > METHOD_NODES) {
+				if (left > 1) {
+					split.add(expression.left);
+					left = 1;
+				}
+				if (right > 1) {
+					split.add(expression.right);
+					right = 1;
+				}
+			}
+			return 1 + left + right;
+		}
+
+		@Override
+		Integer grouping(Grouping expression, Integer inner) {
+			nodes++;
+			return single(expression.expression, inner);
+		}
+
+		@Override
+		Integer literal(Literal expression) {
+			nodes++;
+			return 1;
+		}
+
+		@Override
+		Integer unary(Unary expression, Integer right) {
+			nodes++;
+			return single(expression.right, right);
+		}
+
+		private int single(Expression child, int weight) {
+			if (1 + weight > METHOD_NODES) {
+				split.add(child);
+				return 2;
+			}
+			return 1 + weight;
+		}
+	}
+
+	// The constant pool, each entry added once.
+	private static final class Pool {
+
+		private static final int UTF8 = 1;
+		private static final int INTEGER = 3;
+		private static final int DOUBLE = 6;
+		private static final int TYPE = 7;
+		private static final int STRING = 8;
+		private static final int FIELD = 9;
+		private static final int METHOD = 10;
+		private static final int NAME_AND_TYPE = 12;
+
+		final Bytes bytes = new Bytes();
+		private final Map<List<Object>, Integer> entries = new HashMap<>();
+		// The next index; doubles take two.
+		int count = 1;
+
+		int utf8(String text) {
+			List<Object> key = List.of(UTF8, text);
+			Integer index = entries.get(key);
+			if (index != null) return index;
+			bytes.u1(UTF8).utf(text);
+			return add(key, 1);
+		}
+
+		int integer(int value) {
+			List<Object> key = List.of(INTEGER, value);
+			Integer index = entries.get(key);
+			if (index != null) return index;
+			bytes.u1(INTEGER).u4(value);
+			return add(key, 1);
+		}
+
+		int number(double value) {
+			List<Object> key = List.of(DOUBLE, Double.doubleToRawLongBits(value));
+			Integer index = entries.get(key);
+			if (index != null) return index;
+			bytes.u1(DOUBLE).u8(Double.doubleToRawLongBits(value));
+			return add(key, 2);
+		}
+
+		int type(String name) {
+			return reference(TYPE, utf8(name));
+		}
+
+		int string(String text) {
+			return reference(STRING, utf8(text));
+		}
+
+		int field(String owner, String name, String type) {
+			return member(FIELD, owner, name, type);
+		}
+
+		int method(String owner, String name, String type) {
+			return member(METHOD, owner, name, type);
+		}
+
+		private int member(int tag, String owner, String name, String type) {
+			int ownerIndex = type(owner);
+			int nameAndType = reference(NAME_AND_TYPE, utf8(name), utf8(type));
+			return reference(tag, ownerIndex, nameAndType);
+		}
+
+		private int reference(int tag, int... indexes) {
+			List<Object> key = new ArrayList<>();
+			key.add(tag);
+			for (int index : indexes) key.add(index);
+			Integer index = entries.get(key);
+			if (index != null) return index;
+			bytes.u1(tag);
+			for (int each : indexes) bytes.u2(each);
+			return add(key, 1);
+		}
+
+		private int add(List<Object> key, int slots) {
+			int index = count;
+			entries.put(key, index);
+			count += slots;
+			return index;
+		}
+	}
+
+	// Big-endian bytes, as class files are.
+	private static final class Bytes {
+
+		// Longest modified UTF-8 a class file entry can hold.
+		static final int MAX_UTF = 0xffff;
+
+		private byte[] data = new byte[256];
+		int length = 0;
+
+		Bytes u1(int value) {
+			if (length == data.length) data = Arrays.copyOf(data, length * 2);
+			data[length++] = (byte) value;
+			return this;
+		}
+
+		Bytes u2(int value) {
+			return u1(value >>> 8).u1(value);
+		}
+
+		Bytes u4(int value) {
+			return u2(value >>> 16).u2(value);
+		}
+
+		Bytes u8(long value) {
+			return u4((int) (value >>> 32)).u4((int) value);
+		}
+
+		// Modified UTF-8, after its length.
+		Bytes utf(String text) {
+			int at = length;
+			u2(0);
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				if (c != 0 && c < 0x80) {
+					u1(c);
+				}
+				else if (c < 0x800) {
+					u1(0xc0 | c >> 6).u1(0x80 | c & 0x3f);
+				}
+				else {
+					u1(0xe0 | c >> 12).u1(0x80 | c >> 6 & 0x3f).u1(0x80 | c & 0x3f);
+				}
+			}
+			patch(at, length - at - 2);
+			return this;
+		}
+
+		Bytes append(Bytes other) {
+			if (length + other.length > data.length) {
+				data = Arrays.copyOf(data, Math.max(data.length * 2, length + other.length));
+			}
+			System.arraycopy(other.data, 0, data, length, other.length);
+			length += other.length;
+			return this;
+		}
+
+		void patch(int at, int value) {
+			data[at] = (byte) (value >>> 8);
+			data[at + 1] = (byte) value;
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(data, length);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package interpreter.jlox;
+
+import java.io.PrintStream;
+
+// Where one run writes: printed trees, results and syntax errors go to out,
+// runtime errors to err, and the flags record whether either kind of error
+// has been reported. Each thread of work gets its own.
+class Console {
+    final PrintStream out;
+    final PrintStream err;
+    boolean hadError = false;
+    boolean hadRuntimeError = false;
+    // Counts runtime errors by message when set.
+    Metrics metrics;
+    // Added to every line reported, while running a source that was
+    // compiled as if it started on line 1 but starts further down.
+    int lineOffset = 0;
+
+    Console(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    // A Console of its own on the process's standard streams.
+    static Console standard() {
+        return new Console(System.out, System.err);
+    }
+
+    void error(int ln, String msg){
+        report(ln + lineOffset, "", msg);
+    }
+
+    void error(Token tok, String msg) {
+        if(tok.GetType() == TokenType.EOF) {
+            report(tok.GetLine() + lineOffset, " at end", msg);
+        }
+        else {
+            report(tok.GetLine() + lineOffset, " at '" + tok.GetLexeme() + "'", msg);
+        }
+    }
+
+    // Overridden by consoles that keep errors rather than print them.
+    void report(int ln, String loc, String msg){
+        out.println(
+            "[line " + ln + "] Error" + loc + ": " + msg
+        );
+        hadError  = true;
+    }
+
+    void runtimeError(RuntimeError error) {
+        err.println(error.getMessage() +
+                "\n[line " + (error.token.GetLine() + lineOffset) + "]");
+        hadRuntimeError = true;
+        if (metrics != null) metrics.runtimeError(error.getMessage());
+    }
+}
@@ -0,0 +1,114 @@
+package interpreter.jlox;
+
+import java.util.Random;
+
+// Generated benchmark inputs. Every shape produces a valid expression that
+// evaluates without a runtime error, sized to roughly the requested number
+// of tokens.
+public enum Corpus {
+
+	// 1 + 2 * 3 - 4 % 5 / 6 ...
+	CHAIN {
+		@Override
+		String generate(int tokens, Random random) {
+			StringBuilder builder = new StringBuilder();
+			builder.append(digit(random));
+			int count = 1;
+			while (count + 2 <= tokens) {
+				builder.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)])
+					.append(' ').append(digit(random));
+				count += 2;
+			}
+			return builder.toString();
+		}
+	},
+
+	// ((((1 + 2) * 3) - 4) ...) + ((((1 ..., in blocks at most 1000 levels deep
+	NESTED {
+		@Override
+		String generate(int tokens, Random random) {
+			StringBuilder builder = new StringBuilder();
+			int count = 0;
+			while (count < tokens) {
+				if (count > 0) {
+					builder.append(" + ");
+					count++;
+				}
+				int depth = Math.max(1, Math.min(1000, (tokens - count) / 4));
+				for (int i = 0; i < depth; i++) builder.append('(');
+				builder.append(digit(random));
+				for (int i = 0; i < depth; i++) {
+					builder.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)])
+						.append(' ').append(digit(random)).append(')');
+				}
+				count += 4 * depth + 1;
+			}
+			return builder.toString();
+		}
+	},
+
+	// ("ab" + "cd" + ...) == ("ef" + ...) == ..., in groups of at most 64 strings
+	STRINGS {
+		@Override
+		String generate(int tokens, Random random) {
+			StringBuilder builder = new StringBuilder();
+			int count = 0;
+			while (count < tokens) {
+				if (count > 0) {
+					builder.append(" == ");
+					count++;
+				}
+				int strings = Math.max(1, Math.min(64, (tokens - count - 2) / 2));
+				builder.append('(');
+				for (int i = 0; i < strings; i++) {
+					if (i > 0) builder.append(" + ");
+					builder.append('"').append((char) ('a' + random.nextInt(26)))
+						.append((char) ('a' + random.nextInt(26))).append('"');
+				}
+				builder.append(')');
+				count += 2 * strings + 1;
+			}
+			return builder.toString();
+		}
+	},
+
+	// (x - y) + (x * y) ..., each new term built from two of the last four,
+	// so the same subexpressions repeat throughout
+	REPEATED {
+		@Override
+		String generate(int tokens, Random random) {
+			String[] recent = new String[4];
+			int[] counts = new int[4];
+			for (int i = 0; i < recent.length; i++) {
+				recent[i] = String.valueOf(digit(random));
+				counts[i] = 1;
+			}
+			int last = 0;
+			while (counts[last] < tokens) {
+				int a = random.nextInt(recent.length);
+				int b = random.nextInt(recent.length);
+				int next = (last + 1) % recent.length;
+				String operator = REPEATED_OPERATORS[random.nextInt(REPEATED_OPERATORS.length)];
+				recent[next] = "(" + recent[a] + " " + operator + " " + recent[b] + ")";
+				counts[next] = counts[a] + counts[b] + 3;
+				last = next;
+			}
+			return recent[last];
+		}
+	};
+
+	// Without '/' and '%', whose right side could come out as 0.
+	private static final String[] REPEATED_OPERATORS = { "+", "-", "*" };
+
+	private static final String[] OPERATORS = { "+", "-", "*", "/", "%" };
+
+	abstract String generate(int tokens, Random random);
+
+	public String generate(int tokens) {
+		return generate(tokens, new Random(42));
+	}
+
+	private static char digit(Random random) {
+		return (char) ('1' + random.nextInt(9));
+	}
+}
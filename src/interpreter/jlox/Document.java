@@ -0,0 +1,387 @@
+package interpreter.jlox;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// A source buffer kept scanned and parsed across edits, for an editor that
+// sends every keystroke. The text is held as the statements a run of
+// Parser.parseNext() calls would split it into, each with its tokens, tree
+// and errors. An edit rescans and reparses from just before the statements
+// it touches, and only until a statement ends where an old one did, moved by
+// the edit; the old statements after that are kept, with their offsets and
+// lines shifted. The tokens, trees and errors are always those of a full
+// Scanner.scanTokens() and parseNext() pass over the current text. The text
+// itself is chunked, so an edit does not copy all of it either.
+//
+// Tokens and trees handed out belong to the Document: a later edit that
+// moves lines also moves the line numbers in them.
+public class Document {
+
+	// Kept relative to the first line of whatever owns it.
+	private static final class Diagnostic {
+		final int position;
+		final int line;
+		final String location;
+		final String message;
+
+		Diagnostic(int position, int line, String location, String message) {
+			this.position = position;
+			this.line = line;
+			this.location = location;
+			this.message = message;
+		}
+	}
+
+	// One statement, which owns the text from the end of the one before it
+	// to the end of its own last token. Its tokens carry the lines they had
+	// when scanned, when it started on 'baseLine'.
+	private static final class Statement {
+		final List<Token> tokens;
+		final Expression tree;
+		final List<Diagnostic> scanErrors;
+		final List<Diagnostic> parseErrors;
+		int baseLine;
+
+		Statement(List<Token> tokens, Expression tree, List<Diagnostic> scanErrors,
+				List<Diagnostic> parseErrors, int baseLine) {
+			this.tokens = tokens;
+			this.tree = tree;
+			this.scanErrors = scanErrors;
+			this.parseErrors = parseErrors;
+			this.baseLine = baseLine;
+		}
+	}
+
+	private final ChunkedText text;
+	private Statement[] statements = new Statement[16];
+	// Where each statement's text ends, and the line it ends on.
+	private int[] ends = new int[16];
+	private int[] lines = new int[16];
+	private int count = 0;
+	// Statements from shiftFrom on are still to be moved by shiftDelta
+	// characters and shiftLines lines. An edit moves that boundary to just
+	// after itself rather than rewriting every statement behind it, so edits
+	// close to each other, as typing makes, only touch the few in between.
+	private int shiftFrom = 0;
+	private int shiftDelta = 0;
+	private int shiftLines = 0;
+	// Scan errors after the last statement, and the line the text ends on.
+	private List<Diagnostic> trailing;
+	private int lastLine;
+	private int reparsed;
+
+	public Document(String text) {
+		this.text = new ChunkedText(text);
+		reparse(0, 0, 0, 0);
+	}
+
+	public String text() {
+		return text.toString();
+	}
+
+	public int size() {
+		return count;
+	}
+
+	// Replaces 'removed' characters at 'offset' with 'inserted'.
+	public void edit(int offset, int removed, String inserted) {
+		if (offset < 0 || removed < 0 || offset > text.length() - removed) {
+			throw new IndexOutOfBoundsException(
+					"Edit of " + removed + " at " + offset + " outside text of " + text.length());
+		}
+		int delta = inserted.length() - removed;
+		int lineDelta = newlines(inserted, 0, inserted.length()) - newlines(text, offset, offset + removed);
+		text.replace(offset, removed, inserted);
+
+		// Back two from the first statement the edit reaches: the one before
+		// it read that statement's first token as lookahead, and the scan of
+		// that token may have peeked two characters ahead, into the edit.
+		int first = Math.max(0, endingAtOrAfter(offset) - 2);
+		reparse(first, endingAtOrAfter(offset + removed), delta, lineDelta);
+	}
+
+	// For a caller that only has the whole new text: the edit is whatever
+	// lies between the part in common at the start and at the end.
+	public void update(String newText) {
+		int limit = Math.min(text.length(), newText.length());
+		int prefix = 0;
+		while (prefix < limit && text.charAt(prefix) == newText.charAt(prefix)) prefix++;
+		int suffix = 0;
+		while (suffix < limit - prefix
+				&& text.charAt(text.length() - 1 - suffix) == newText.charAt(newText.length() - 1 - suffix)) {
+			suffix++;
+		}
+		edit(prefix, text.length() - prefix - suffix, newText.substring(prefix, newText.length() - suffix));
+	}
+
+	// How many statements the last edit scanned and parsed again.
+	public int reparsed() {
+		return reparsed;
+	}
+
+	// One per statement, null where it had a syntax error.
+	public List<Expression> expressions() {
+		List<Expression> trees = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) trees.add(settle(i).tree);
+		return trees;
+	}
+
+	public List<Token> tokens() {
+		List<Token> tokens = new ArrayList<>();
+		for (int i = 0; i < count; i++) tokens.addAll(settle(i).tokens);
+		tokens.add(new Token(TokenType.EOF, "", null, lastLine));
+		return tokens;
+	}
+
+	// As Console prints them: every scan error, then every syntax error.
+	public List<String> errors() {
+		List<String> errors = new ArrayList<>();
+		for (int i = 0; i < count; i++) format(statements[i].scanErrors, startLine(i), errors);
+		format(trailing, startLine(count), errors);
+		for (int i = 0; i < count; i++) format(statements[i].parseErrors, startLine(i), errors);
+		return errors;
+	}
+
+	private static void format(List<Diagnostic> diagnostics, int line, List<String> into) {
+		for (Diagnostic diagnostic : diagnostics) {
+			into.add("[line " + (line + diagnostic.line) + "] Error" + diagnostic.location + ": "
+					+ diagnostic.message);
+		}
+	}
+
+	private int startLine(int index) {
+		return index == 0 ? 1 : line(index - 1);
+	}
+
+	private int end(int index) {
+		return index < shiftFrom ? ends[index] : ends[index] + shiftDelta;
+	}
+
+	private int line(int index) {
+		return index < shiftFrom ? lines[index] : lines[index] + shiftLines;
+	}
+
+	// Makes the pending shift start at 'index' instead, applying it to, or
+	// taking it back from, the statements in between.
+	private void moveShift(int index) {
+		for (int i = shiftFrom; i < index; i++) {
+			ends[i] += shiftDelta;
+			lines[i] += shiftLines;
+		}
+		for (int i = index; i < shiftFrom; i++) {
+			ends[i] -= shiftDelta;
+			lines[i] -= shiftLines;
+		}
+		shiftFrom = index;
+	}
+
+	// Brings the statement's token lines up to date with where it now starts.
+	private Statement settle(int index) {
+		Statement statement = statements[index];
+		int line = startLine(index);
+		if (statement.baseLine != line) {
+			int shift = line - statement.baseLine;
+			for (Token token : statement.tokens) token.SetLine(token.GetLine() + shift);
+			statement.baseLine = line;
+		}
+		return statement;
+	}
+
+	// The first statement whose text ends at or after 'offset', or count.
+	private int endingAtOrAfter(int offset) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (end(middle) < offset) low = middle + 1;
+			else high = middle;
+		}
+		return low;
+	}
+
+	private static int newlines(CharSequence text, int from, int to) {
+		int newlines = 0;
+		for (int i = from; i < to; i++) {
+			if (text.charAt(i) == '\n') newlines++;
+		}
+		return newlines;
+	}
+
+	// Scans and parses the new text from the start of statement 'first'
+	// until a statement ends where an old one at or after 'candidate' ended,
+	// moved by 'delta', and puts the new statements in place of the old ones
+	// up to there.
+	private void reparse(int first, int candidate, int delta, int lineDelta) {
+		Rescan rescan = new Rescan(first == 0 ? 0 : end(first - 1), startLine(first));
+		Parser parser = new Parser(rescan, rescan.console);
+
+		Statement[] fresh = new Statement[4];
+		int[] freshEnds = new int[4];
+		int[] freshLines = new int[4];
+		int freshCount = 0;
+		int keep = count;
+		boolean resynced = false;
+		int old = candidate;
+		while (parser.hasNext()) {
+			int startLine = rescan.lastLine;
+			Expression tree = parser.parseNext();
+			if (freshCount == fresh.length) {
+				fresh = Arrays.copyOf(fresh, freshCount * 2);
+				freshEnds = Arrays.copyOf(freshEnds, freshCount * 2);
+				freshLines = Arrays.copyOf(freshLines, freshCount * 2);
+			}
+			fresh[freshCount] = rescan.finish(tree, startLine);
+			freshEnds[freshCount] = rescan.lastEnd;
+			freshLines[freshCount] = rescan.lastLine;
+			freshCount++;
+
+			while (old < count && end(old) + delta < rescan.lastEnd) old++;
+			if (old < count && end(old) + delta == rescan.lastEnd) {
+				keep = old + 1;
+				resynced = true;
+				break;
+			}
+		}
+
+		if (resynced) {
+			lastLine += lineDelta;
+		}
+		else {
+			trailing = rescan.trailing();
+			lastLine = rescan.peek().GetLine();
+		}
+
+		int kept = count - keep;
+		int size = first + freshCount + kept;
+		if (size > statements.length) {
+			int capacity = Math.max(size, statements.length * 2);
+			statements = Arrays.copyOf(statements, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			lines = Arrays.copyOf(lines, capacity);
+		}
+		moveShift(keep);
+		shiftDelta += delta;
+		shiftLines += lineDelta;
+		if (keep != first + freshCount) {
+			System.arraycopy(statements, keep, statements, first + freshCount, kept);
+			System.arraycopy(ends, keep, ends, first + freshCount, kept);
+			System.arraycopy(lines, keep, lines, first + freshCount, kept);
+		}
+		System.arraycopy(fresh, 0, statements, first, freshCount);
+		System.arraycopy(freshEnds, 0, ends, first, freshCount);
+		System.arraycopy(freshLines, 0, lines, first, freshCount);
+		if (size < count) Arrays.fill(statements, size, count, null);
+		count = size;
+		shiftFrom = first + freshCount;
+		reparsed = freshCount;
+	}
+
+	// Tokens for the Parser, scanned from the Document's text one at a time
+	// as it asks for them, with the errors scanning and parsing report.
+	private final class Rescan implements TokenSource {
+		private final Scanner scanner;
+		private boolean scanning = false;
+		private final ArrayDeque<Diagnostic> scanErrors = new ArrayDeque<>();
+		private List<Diagnostic> parseErrors = new ArrayList<>();
+
+		final Console console = new Console(System.out, System.err) {
+			@Override
+			void report(int line, String location, String message) {
+				hadError = true;
+				if (scanning) scanErrors.add(new Diagnostic(scanner.position(), line, location, message));
+				else parseErrors.add(new Diagnostic(-1, line, location, message));
+			}
+		};
+
+		private Token ahead;
+		private int aheadEnd;
+		private int aheadLine;
+		private Token last;
+		// Where the last consumed token ends, and the line there.
+		int lastEnd;
+		int lastLine;
+		private List<Token> consumed = new ArrayList<>();
+
+		Rescan(int from, int line) {
+			this.scanner = new Scanner(text, console, line);
+			scanner.seek(from);
+			this.lastEnd = from;
+			this.lastLine = line;
+		}
+
+		@Override
+		public Token peek() {
+			if (ahead == null) scanAhead();
+			return ahead;
+		}
+
+		@Override
+		public Token next() {
+			Token token = peek();
+			if (token.GetType() != TokenType.EOF) {
+				consumed.add(token);
+				last = token;
+				lastEnd = aheadEnd;
+				lastLine = aheadLine;
+				ahead = null;
+			}
+			return token;
+		}
+
+		@Override
+		public Token previous() {
+			return last;
+		}
+
+		private void scanAhead() {
+			scanning = true;
+			Token token = scanner.nextToken();
+			scanning = false;
+			if (token == null) {
+				token = new Token(TokenType.EOF, "", null, scanner.line());
+			}
+			else if (token.GetType().spelling == null) {
+				// Copied out of the text, which the next edit changes.
+				token = new Token(token.GetType(), token.GetLexeme(), token.GetLiteral(), token.GetLine());
+			}
+			ahead = token;
+			aheadEnd = scanner.position();
+			aheadLine = scanner.line();
+		}
+
+		// The statement just parsed: the tokens consumed for it, the syntax
+		// errors and the scan errors up to its end. Scan errors further on
+		// came from the lookahead and belong to the next statement.
+		Statement finish(Expression tree, int startLine) {
+			List<Diagnostic> scanned = Collections.emptyList();
+			while (!scanErrors.isEmpty() && scanErrors.peek().position <= lastEnd) {
+				if (scanned.isEmpty()) scanned = new ArrayList<>();
+				scanned.add(relative(scanErrors.remove(), startLine));
+			}
+			List<Diagnostic> parsed = Collections.emptyList();
+			if (!parseErrors.isEmpty()) {
+				parsed = new ArrayList<>();
+				for (Diagnostic diagnostic : parseErrors) parsed.add(relative(diagnostic, startLine));
+				parseErrors.clear();
+			}
+			Statement statement = new Statement(consumed, tree, scanned, parsed, startLine);
+			consumed = new ArrayList<>();
+			return statement;
+		}
+
+		// Scan errors after the last statement, once the scan has reached the end.
+		List<Diagnostic> trailing() {
+			List<Diagnostic> trailing = new ArrayList<>();
+			for (Diagnostic diagnostic : scanErrors) trailing.add(relative(diagnostic, lastLine));
+			return trailing;
+		}
+
+		private Diagnostic relative(Diagnostic diagnostic, int line) {
+			return new Diagnostic(diagnostic.position, diagnostic.line - line, diagnostic.location,
+					diagnostic.message);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package interpreter.jlox;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+// Evaluates like Interpreter, but a numeric result is kept in the primitive
+// 'number' register and signalled by returning NUMBER, so arithmetic
+// subtrees never box. Anything else takes the generic Object path.
+class DoubleEvaluator implements Expression.Visitor<Object> {
+
+	private static final Object NUMBER = new Object();
+	private double number;
+	private final IterativeEvaluator iterative = new IterativeEvaluator();
+	private int depth = 0;
+	// Applications of each operator, by TokenType ordinal, when counting.
+	private long[] operators;
+
+	void countOperators(long[] counts) {
+		operators = counts;
+		iterative.countOperators(counts);
+	}
+
+	Object evaluate(Expression exp) {
+		depth = 0;
+		Object value = exp.accept(this);
+		if (value == NUMBER) return number;
+		return value;
+	}
+
+	// Past Interpreter.MAX_RECURSION levels the subtree is evaluated boxed,
+	// on an explicit stack.
+	private Object deep(Expression exp) {
+		return unbox(iterative.evaluate(exp));
+	}
+
+	@Override
+	public Object visitBinaryExpression(Binary expression) {
+		if (depth == Interpreter.MAX_RECURSION) return deep(expression);
+		depth++;
+		Object lhs = expression.left.accept(this);
+		double left = number;
+		Object rhs = expression.right.accept(this);
+		double right = number;
+		depth--;
+		if (operators != null) operators[expression.operator.GetType().ordinal()]++;
+
+		if (lhs != NUMBER || rhs != NUMBER) {
+			Object l = lhs == NUMBER ? (Object) left : lhs;
+			Object r = rhs == NUMBER ? (Object) right : rhs;
+			return unbox(Interpreter.binary(expression.operator, l, r));
+		}
+
+		switch(expression.operator.GetType()) {
+		case GREATER_THAN: return left > right;
+		case GREATER_THAN_EQUAL: return left >= right;
+		case LESS_THAN: return left < right;
+		case LESS_THAN_EQUAL: return left <= right;
+		case MINUS: number = left - right; return NUMBER;
+		case PLUS: number = left + right; return NUMBER;
+		case SLASH:
+			if (right == 0) {
+				throw new RuntimeError(expression.operator, "Division by 0 error");
+			}
+			number = left / right;
+			return NUMBER;
+		case MOD:
+			if (right == 0) {
+				throw new RuntimeError(expression.operator, "Mod by 0 error");
+			}
+			number = left % right;
+			return NUMBER;
+		case STAR: number = left * right; return NUMBER;
+		// Same as Double.equals, which is what Interpreter.equal ends up calling.
+		case NOT_EQUAL: return Double.doubleToLongBits(left) != Double.doubleToLongBits(right);
+		case EQUAL_EQUAL: return Double.doubleToLongBits(left) == Double.doubleToLongBits(right);
+		default:
+			return null;
+		}
+	}
+
+	@Override
+	public Object visitGroupingExpression(Grouping expression) {
+		if (depth == Interpreter.MAX_RECURSION) return deep(expression);
+		depth++;
+		Object value = expression.expression.accept(this);
+		depth--;
+		return value;
+	}
+
+	@Override
+	public Object visitLiteralExpression(Literal expression) {
+		return unbox(expression.value);
+	}
+
+	@Override
+	public Object visitUnaryExpression(Unary expression) {
+		if (depth == Interpreter.MAX_RECURSION) return deep(expression);
+		depth++;
+		Object right = expression.right.accept(this);
+		depth--;
+		if (operators != null) operators[expression.operator.GetType().ordinal()]++;
+		if (right == NUMBER) {
+			switch(expression.operator.GetType()) {
+			case NOT: return false;
+			case MINUS: number = -number; return NUMBER;
+			default: return null;
+			}
+		}
+		return unbox(Interpreter.unary(expression.operator, right));
+	}
+
+	private Object unbox(Object value) {
+		if (value instanceof Double) {
+			number = (double) value;
+			return NUMBER;
+		}
+		return value;
+	}
+}
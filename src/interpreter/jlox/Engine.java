@@ -0,0 +1,120 @@
+package interpreter.jlox;
+
+import java.io.PrintStream;
+
+// The configured pipeline: which scanner, tree and evaluator a run uses. An
+// Engine's only mutable state is its optional ExpressionCache and Metrics,
+// which are thread-safe, so one Engine can be shared by any number of threads, each
+// running code through Sessions of its own.
+public final class Engine {
+
+	// What a command line would set. Copied when the Engine is built, so
+	// changing it afterwards does not affect the Engine.
+	public static class Options {
+		public boolean useVM = false;
+		public boolean optimize = true;
+		public boolean stream = false;
+		public boolean mmap = false;
+		public boolean packed = false;
+		// Skip blanks, comments and strings in bulk rather than per character.
+		public boolean bulkSkip = false;
+		// Parse into an ExpressionArena and evaluate that. The arena is run
+		// as parsed, never optimized, so it cannot be combined with useVM,
+		// memoize or stream, which each need the tree.
+		public boolean arena = false;
+		public boolean unboxed = true;
+		public boolean reportAllocation = false;
+		// Share repeated subexpressions and evaluate each one once. Applies
+		// to the tree-walking interpreter only.
+		public boolean memoize = false;
+		public boolean reportMemo = false;
+		// Print each parsed tree before its value, as the command line does.
+		// A Session can turn this on or off for its own runs.
+		public boolean printTree = true;
+		// Compiled expressions to keep across runs, by count and by
+		// estimated bytes. No cache when cacheEntries is 0.
+		public int cacheEntries = 0;
+		public long cacheBytes = 64L << 20;
+		// Time each phase and count tokens, nodes, evaluations, runtime
+		// errors and operators; see Metrics.
+		public boolean metrics = false;
+		// Keep each script's parsed tree in a file beside it, and run from
+		// that file while the script is unchanged; see TreeCache. The cache
+		// reads the whole script to check it, so not with stream or mmap.
+		public boolean treeCache = false;
+		// Compile an expression into a JVM class once it has run this many
+		// times, and run the class from then on; see ClassCompiler. Off at 0.
+		// Runs are counted per cached source, so past 1 it needs the cache.
+		// Only the plain tree walker is replaced, and not with memoize or
+		// metrics, whose counts a class does not keep.
+		public int compileAfter = 0;
+	}
+
+	final boolean useVM;
+	final boolean optimize;
+	final boolean stream;
+	final boolean mmap;
+	final boolean packed;
+	final boolean bulkSkip;
+	final boolean arena;
+	final boolean unboxed;
+	final boolean reportAllocation;
+	final boolean memoize;
+	final boolean reportMemo;
+	final boolean printTree;
+	final boolean treeCache;
+	final int compileAfter;
+	final ExpressionCache cache;
+	final Metrics metrics;
+
+	public Engine() {
+		this(new Options());
+	}
+
+	// Throws IllegalArgumentException for options that cannot go together.
+	public Engine(Options options) {
+		if (options.compileAfter > 0 && (options.useVM || options.arena || options.memoize || options.metrics)) {
+			throw new IllegalArgumentException("compileAfter cannot be combined with useVM, arena, memoize or metrics");
+		}
+		if (options.compileAfter > 1 && options.cacheEntries == 0) {
+			throw new IllegalArgumentException("compileAfter past 1 needs cacheEntries, to count runs of a source");
+		}
+		if (options.arena && (options.useVM || options.memoize || options.stream)) {
+			throw new IllegalArgumentException("arena cannot be combined with useVM, memoize or stream");
+		}
+		if (options.treeCache && (options.stream || options.mmap)) {
+			throw new IllegalArgumentException("treeCache cannot be combined with stream or mmap");
+		}
+		this.useVM = options.useVM;
+		this.optimize = options.optimize;
+		this.stream = options.stream;
+		this.mmap = options.mmap;
+		this.packed = options.packed;
+		this.bulkSkip = options.bulkSkip;
+		this.arena = options.arena;
+		this.unboxed = options.unboxed;
+		this.reportAllocation = options.reportAllocation;
+		this.memoize = options.memoize;
+		this.reportMemo = options.reportMemo;
+		this.printTree = options.printTree;
+		this.treeCache = options.treeCache;
+		this.compileAfter = options.compileAfter;
+		this.cache = options.cacheEntries > 0
+				? new ExpressionCache(options.cacheEntries, options.cacheBytes) : null;
+		this.metrics = options.metrics ? new Metrics() : null;
+	}
+
+	// Shared by all of this Engine's Sessions; null when caching is off.
+	public ExpressionCache cache() {
+		return cache;
+	}
+
+	// Shared by all of this Engine's Sessions; null when metrics are off.
+	public Metrics metrics() {
+		return metrics;
+	}
+
+	public Session newSession(PrintStream out, PrintStream err) {
+		return new Session(this, new Console(out, err));
+	}
+}
@@ -0,0 +1,153 @@
+package interpreter.jlox;
+
+import java.util.Arrays;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+// An expression tree stored as parallel primitive arrays, one slot per node,
+// with children referred to by index. Operators are kept as a TokenType
+// ordinal and a line, so no Token objects are held; literal values sit in a
+// constant pool. Grouping and unary nodes keep their operand in lefts, and a
+// literal keeps its pool index there.
+//
+// Children are always added before their parent and left before right, so
+// index order is the postfix order of the tree and the root comes last.
+// Nodes are added by index, through a NodeStack.Arena, so building an arena
+// boxes nothing.
+class ExpressionArena {
+
+	static final byte BINARY = 0;
+	static final byte GROUPING = 1;
+	static final byte LITERAL = 2;
+	static final byte UNARY = 3;
+
+	private static final TokenType[] TYPES = TokenType.values();
+
+	byte[] kinds = new byte[16];
+	byte[] operators = new byte[16];
+	int[] lefts = new int[16];
+	int[] rights = new int[16];
+	int[] lines = new int[16];
+	int count = 0;
+	int root = -1;
+
+	Object[] pool = new Object[8];
+	int poolCount = 0;
+
+	int binary(int left, Token operator, int right) {
+		return add(BINARY, operator.GetType(), left, right, operator.GetLine());
+	}
+
+	int grouping(int expression) {
+		return add(GROUPING, null, expression, -1, 0);
+	}
+
+	int literal(Object value) {
+		if (poolCount == pool.length) pool = Arrays.copyOf(pool, poolCount * 2);
+		pool[poolCount] = value;
+		return add(LITERAL, null, poolCount++, -1, 0);
+	}
+
+	int unary(Token operator, int right) {
+		return add(UNARY, operator.GetType(), right, -1, operator.GetLine());
+	}
+
+	private int add(byte kind, TokenType operator, int left, int right, int line) {
+		if (count == kinds.length) resize(count * 2);
+		kinds[count] = kind;
+		operators[count] = operator == null ? -1 : (byte) operator.ordinal();
+		lefts[count] = left;
+		rights[count] = right;
+		lines[count] = line;
+		return count++;
+	}
+
+	// Drops the spare capacity left over from growing while parsing.
+	void trim() {
+		if (count < kinds.length) resize(count);
+		if (poolCount < pool.length) pool = Arrays.copyOf(pool, poolCount);
+	}
+
+	private void resize(int capacity) {
+		kinds = Arrays.copyOf(kinds, capacity);
+		operators = Arrays.copyOf(operators, capacity);
+		lefts = Arrays.copyOf(lefts, capacity);
+		rights = Arrays.copyOf(rights, capacity);
+		lines = Arrays.copyOf(lines, capacity);
+	}
+
+	TokenType operator(int node) {
+		return TYPES[operators[node]];
+	}
+
+	// Built for error reporting and conversion only; the arena itself keeps
+	// just the type and line.
+	Token operatorToken(int node) {
+		TokenType type = operator(node);
+		return new Token(type, type.spelling, null, lines[node]);
+	}
+
+	Expression toExpression() {
+		Expression[] stack = new Expression[Math.max(count, 1)];
+		int sp = 0;
+		for (int node = 0; node < count; node++) {
+			switch(kinds[node]) {
+			case BINARY: {
+				Expression right = stack[--sp];
+				stack[sp - 1] = new Binary(stack[sp - 1], operatorToken(node), right);
+				break;
+			}
+			case GROUPING:
+				stack[sp - 1] = new Grouping(stack[sp - 1]);
+				break;
+			case LITERAL:
+				stack[sp++] = new Literal(pool[lefts[node]]);
+				break;
+			case UNARY:
+				stack[sp - 1] = new Unary(operatorToken(node), stack[sp - 1]);
+				break;
+			default:
+				throw new IllegalStateException("Unknown node kind " + kinds[node]);
+			}
+		}
+		return stack[0];
+	}
+
+	// The walk visits children before parents, the order the arena keeps, so
+	// each node is stacked as the Parser would stack it.
+	static ExpressionArena of(Expression exp) {
+		ExpressionArena arena = new ExpressionArena();
+		NodeStack.Arena nodes = new NodeStack.Arena(arena);
+		new ExpressionWalker<Void>() {
+			@Override
+			Void binary(Binary expression, Void left, Void right) {
+				nodes.binary(expression.operator);
+				return null;
+			}
+
+			@Override
+			Void grouping(Grouping expression, Void inner) {
+				nodes.grouping();
+				return null;
+			}
+
+			@Override
+			Void literal(Literal expression) {
+				nodes.literal(expression.value);
+				return null;
+			}
+
+			@Override
+			Void unary(Unary expression, Void right) {
+				nodes.unary(expression.operator);
+				return null;
+			}
+		}.walk(exp);
+		arena.root = nodes.pop();
+		arena.trim();
+		return arena;
+	}
+}
@@ -0,0 +1,125 @@
+package interpreter.jlox;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Maps source text to its compiled Program so that repeated expressions skip
+// scanning, parsing, optimizing and compiling. Bounded both by entry count
+// and by the Programs' estimated size in bytes. Sources that fail to parse
+// are never stored; they count as rejections and are reported again each
+// time they are run. Programs are compiled as if their source started on
+// line 1, so the same text is shared wherever it appears, and the runner adds
+// its own line offset when reporting; see Console.lineOffset.
+//
+// Lookups take no lock: entries live in a ConcurrentHashMap, and a hit only
+// marks its entry used, writing the mark just once between evictions. Puts
+// take the cache's lock and evict by second chance, an approximation of LRU:
+// entries queue in the order they were added, and the eldest is evicted
+// unless it was used since it was last passed over, in which case it is
+// unmarked and queued again.
+public final class ExpressionCache {
+
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+	// Every entry, the next one to pass over first; only used under the lock.
+	private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+	private final int maxEntries;
+	private final long maxBytes;
+	private long bytes = 0;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder rejections = new LongAdder();
+
+	ExpressionCache(int maxEntries, long maxBytes) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	Program get(String source) {
+		Entry entry = entries.get(source);
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		// A hot entry is read by every lookup but written by few.
+		if (!entry.used) entry.used = true;
+		return entry.program;
+	}
+
+	// A Program larger than the whole byte budget is not kept at all. When
+	// another run has cached the same source first, its Program is kept.
+	void put(String source, Program program) {
+		if (program.weight > maxBytes) return;
+		int evicted = 0;
+		synchronized (this) {
+			if (entries.containsKey(source)) return;
+			Entry added = new Entry(source, program);
+			entries.put(source, added);
+			queue.add(added);
+			bytes += program.weight;
+
+			// Terminates: a full turn unmarks every entry, and the one just
+			// added, which fits the budgets alone, is never evicted for itself.
+			while (entries.size() > maxEntries || bytes > maxBytes) {
+				Entry eldest = queue.remove();
+				if (eldest.used || eldest == added) {
+					eldest.used = false;
+					queue.add(eldest);
+					continue;
+				}
+				entries.remove(eldest.source);
+				bytes -= eldest.program.weight;
+				evicted++;
+			}
+		}
+		evictions.add(evicted);
+	}
+
+	void reject() {
+		rejections.increment();
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	public long rejections() {
+		return rejections.sum();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public synchronized long bytes() {
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return "[cache] " + hits() + " hits, " + misses() + " misses, " + evictions() + " evictions, "
+				+ rejections() + " rejected, " + size() + " entries, ~" + bytes() + " bytes";
+	}
+
+	private static final class Entry {
+		final String source;
+		final Program program;
+		// Set by a lookup, cleared when eviction passes the entry over.
+		volatile boolean used = false;
+
+		Entry(String source, Program program) {
+			this.source = source;
+			this.program = program;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package interpreter.jlox;
+
+import java.util.HashMap;
+import java.util.Objects;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+// Builds nodes for the Parser and Optimizer, handing back the node it already
+// built whenever asked for a structurally equal one, so that repeated
+// subexpressions share a single node. Children are compared by identity,
+// which is enough once they were interned themselves.
+//
+// Operators only match when their Tokens have the same type and line, so a
+// shared node raises exactly the RuntimeError each of its copies would have.
+class ExpressionInterner implements Parser.Nodes<Expression> {
+
+	private final HashMap<Key, Expression> nodes = new HashMap<>();
+	private long requests = 0;
+
+	@Override
+	public Expression binary(Expression left, Token operator, Expression right) {
+		Key key = new Key(left, operator, right, null);
+		Expression node = find(key);
+		if (node == null) {
+			node = new Binary(left, operator, right);
+			nodes.put(key, node);
+		}
+		return node;
+	}
+
+	@Override
+	public Expression grouping(Expression expression) {
+		Key key = new Key(expression, null, null, null);
+		Expression node = find(key);
+		if (node == null) {
+			node = new Grouping(expression);
+			nodes.put(key, node);
+		}
+		return node;
+	}
+
+	@Override
+	public Expression literal(Object value) {
+		Key key = new Key(null, null, null, value);
+		Expression node = find(key);
+		if (node == null) {
+			node = new Literal(value);
+			nodes.put(key, node);
+		}
+		return node;
+	}
+
+	@Override
+	public Expression unary(Token operator, Expression right) {
+		Key key = new Key(null, operator, right, null);
+		Expression node = find(key);
+		if (node == null) {
+			node = new Unary(operator, right);
+			nodes.put(key, node);
+		}
+		return node;
+	}
+
+	// How many nodes were asked for, and how many distinct ones were built.
+	long requests() {
+		return requests;
+	}
+
+	int distinct() {
+		return nodes.size();
+	}
+
+	private Expression find(Key key) {
+		requests++;
+		return nodes.get(key);
+	}
+
+	// A Binary has both children and an operator, a Unary only the right
+	// child, a Grouping only the left and a Literal only the value; the kinds
+	// therefore never compare equal to each other.
+	private static final class Key {
+		final Expression left;
+		final TokenType type;
+		final int line;
+		final Expression right;
+		final Object value;
+		final int hash;
+
+		Key(Expression left, Token operator, Expression right, Object value) {
+			this.left = left;
+			this.type = operator == null ? null : operator.GetType();
+			this.line = operator == null ? 0 : operator.GetLine();
+			this.right = right;
+			this.value = value;
+			int hash = System.identityHashCode(left);
+			hash = hash * 31 + Objects.hashCode(type);
+			hash = hash * 31 + line;
+			hash = hash * 31 + System.identityHashCode(right);
+			hash = hash * 31 + (value == null ? 1 : value.hashCode());
+			this.hash = hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) return false;
+			Key key = (Key) other;
+			return left == key.left && type == key.type && line == key.line && right == key.right
+					&& Objects.equals(value, key.value);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package interpreter.jlox;
+
+import java.util.Arrays;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+// Folds an Expression bottom-up, children left to right before their parent,
+// with explicit stacks instead of the call stack, so how deeply a tree nests
+// is limited only by the heap. A walker keeps its stacks between walks and is
+// not reentrant.
+abstract class ExpressionWalker<R> {
+
+	private Expression[] pending = new Expression[16];
+	private boolean[] expanded = new boolean[16];
+	private int pendingCount = 0;
+
+	private Object[] results = new Object[16];
+	private int resultCount = 0;
+
+	abstract R binary(Binary expression, R left, R right);
+
+	abstract R grouping(Grouping expression, R inner);
+
+	abstract R literal(Literal expression);
+
+	abstract R unary(Unary expression, R right);
+
+	// A walker that already has the result for a subtree, such as one that
+	// memoizes, returns true here and supplies it from recall() instead of
+	// walking the subtree again.
+	boolean known(Expression exp) {
+		return false;
+	}
+
+	R recall(Expression exp) {
+		throw new IllegalStateException();
+	}
+
+	R walk(Expression root) {
+		clear();
+		push(root);
+		while (pendingCount > 0) {
+			int top = pendingCount - 1;
+			Expression exp = pending[top];
+
+			if (exp instanceof Literal) {
+				pop();
+				result(literal((Literal) exp));
+			}
+			else if (!expanded[top] && known(exp)) {
+				pop();
+				result(recall(exp));
+			}
+			else if (!expanded[top]) {
+				// Right is pushed first so that left is walked first.
+				expanded[top] = true;
+				if (exp instanceof Binary) {
+					push(((Binary) exp).right);
+					push(((Binary) exp).left);
+				}
+				else if (exp instanceof Grouping) {
+					push(((Grouping) exp).expression);
+				}
+				else {
+					push(((Unary) exp).right);
+				}
+			}
+			else {
+				pop();
+				if (exp instanceof Binary) {
+					R right = popResult();
+					R left = popResult();
+					result(binary((Binary) exp, left, right));
+				}
+				else if (exp instanceof Grouping) {
+					result(grouping((Grouping) exp, popResult()));
+				}
+				else {
+					result(unary((Unary) exp, popResult()));
+				}
+			}
+		}
+		return popResult();
+	}
+
+	private void push(Expression exp) {
+		if (pendingCount == pending.length) {
+			pending = Arrays.copyOf(pending, pendingCount * 2);
+			expanded = Arrays.copyOf(expanded, pendingCount * 2);
+		}
+		pending[pendingCount] = exp;
+		expanded[pendingCount] = false;
+		pendingCount++;
+	}
+
+	private void pop() {
+		pending[--pendingCount] = null;
+	}
+
+	private void result(R value) {
+		if (resultCount == results.length) results = Arrays.copyOf(results, resultCount * 2);
+		results[resultCount++] = value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private R popResult() {
+		R value = (R) results[--resultCount];
+		results[resultCount] = null;
+		return value;
+	}
+
+	// A walk cut short by an exception leaves entries behind.
+	private void clear() {
+		Arrays.fill(pending, 0, pendingCount, null);
+		Arrays.fill(results, 0, resultCount, null);
+		pendingCount = 0;
+		resultCount = 0;
+	}
+}
@@ -7,73 +7,151 @@ import interpreter.jlox.Expression.Unary;
 
 public class Interpreter implements Expression.Visitor<Object> {
 
+	// Nesting depth past which the recursive evaluators hand the rest of a
+	// subtree to an IterativeEvaluator. Shallow trees never get there and
+	// keep the faster recursive path. Each visit method checks it itself so
+	// the recursion gains no extra frame per level.
+	static final int MAX_RECURSION = 1000;
+
+	final Console console;
+	private final DoubleEvaluator doubles = new DoubleEvaluator();
+	private final IterativeEvaluator iterative = new IterativeEvaluator();
+	private MemoizingEvaluator memo;
+	private int depth = 0;
+	boolean unboxed = true;
+	boolean reportAllocation = false;
+	// Evaluate each distinct node of a shared tree once; see MemoizingEvaluator.
+	boolean memoize = false;
+	boolean reportMemo = false;
+	// Applications of each operator, by TokenType ordinal, when counting.
+	private long[] operators;
+	
+	Interpreter() {
+		this(Console.standard());
+	}
+	
+	Interpreter(Console console) {
+		this.console = console;
+	}
+	
+	// Counts every operator applied, by TokenType ordinal, into 'counts'.
+	void countOperators(long[] counts) {
+		operators = counts;
+		doubles.countOperators(counts);
+		iterative.countOperators(counts);
+		if (memo != null) memo.countOperators(counts);
+	}
+
+	long[] operatorCounts() {
+		return operators;
+	}
 	
 	void interpret(Expression exp) {
+		interpret(exp, null);
+	}
+
+	// Runs 'code', exp compiled by a ClassCompiler, if there is one.
+	void interpret(Expression exp, ClassCompiler.Compiled code) {
 		try
 		{
-			Object value = evaluate(exp);
-			System.out.println(stringify(value));
+			long before = reportAllocation ? AllocationMeter.allocatedBytes() : 0;
+			Object value = code != null ? code.evaluate() : compute(exp);
+			if (reportAllocation) {
+				console.err.println("[alloc] " + (AllocationMeter.allocatedBytes() - before) + " bytes");
+			}
+			if (memoize && reportMemo) {
+				console.err.println("[memo] " + memo.evaluated() + " nodes evaluated, " + memo.reused() + " reused");
+			}
+			console.out.println(stringify(value));
 		}
 		catch(RuntimeError e) {
-			jlox.runtimeError(e);
+			console.runtimeError(e);
+		}
+	}
+	
+	Object compute(Expression exp) {
+		depth = 0;
+		if (memoize) {
+			if (memo == null) {
+				memo = new MemoizingEvaluator();
+				memo.countOperators(operators);
+			}
+			return memo.evaluate(exp);
 		}
+		return unboxed ? doubles.evaluate(exp) : evaluate(exp);
 	}
 	
-	private String stringify(Object value) {
+	static String stringify(Object value) {
 		if (value == null) return "nil";
 
 	    if (value instanceof Double) {
-	      String text = value.toString();
-	      if (text.endsWith(".0")) {
-	    	  text = text.substring(0, text.length() - 2);
+	      // Double.toString writes whole numbers under 10^7 as "n.0", shown
+	      // here as "n"; from 10^7 up it uses exponents and never ends in ".0".
+	      double number = (Double) value;
+	      if (number == (long) number && Math.abs(number) < 1e7) {
+	        if (number == 0 && 1 / number < 0) return "-0";
+	        return Long.toString((long) number);
 	      }
-	      return text;
+	      return Double.toString(number);
 		}
 	    return value.toString();
 	}
 
 	@Override
 	public Object visitBinaryExpression(Binary expression) {
+		if (depth == MAX_RECURSION) return iterative.evaluate(expression);
+		depth++;
 		Object lhs = evaluate(expression.left);
 		Object rhs = evaluate(expression.right);
-		
-		switch(expression.operator.GetType()){
+		depth--;
+		if (operators != null) operators[expression.operator.GetType().ordinal()]++;
+		return binary(expression.operator, lhs, rhs);
+	}
+
+	static Object binary(Token operator, Object lhs, Object rhs) {
+		return binary(operator.GetType(), operator, lhs, rhs);
+	}
+
+	// operator is only used to report errors and may be null, in which case
+	// the caller attaches the real Token to any RuntimeError itself.
+	static Object binary(TokenType type, Token operator, Object lhs, Object rhs) {
+		switch(type){
 		case GREATER_THAN:
-			checkNumberOperands(expression.operator, lhs, rhs);
+			checkNumberOperands(operator, lhs, rhs);
 			return (double) lhs > (double) rhs;
 		case GREATER_THAN_EQUAL:
-			checkNumberOperands(expression.operator, lhs, rhs);
+			checkNumberOperands(operator, lhs, rhs);
 			return (double) lhs >= (double) rhs;
 		case LESS_THAN:
-			checkNumberOperands(expression.operator, lhs, rhs);
+			checkNumberOperands(operator, lhs, rhs);
 			return (double) lhs < (double) rhs;
 		case LESS_THAN_EQUAL:
-			checkNumberOperands(expression.operator, lhs, rhs);
+			checkNumberOperands(operator, lhs, rhs);
 			return (double) lhs <= (double) rhs;
 		
 		case MINUS:
-			checkNumberOperands(expression.operator, lhs, rhs);
+			checkNumberOperands(operator, lhs, rhs);
 			return (double) lhs - (double) rhs;
 		case PLUS:
 			if (lhs instanceof Double && rhs instanceof Double) {
 				return (double) lhs + (double) rhs;
 			}
-			if(lhs instanceof String && rhs instanceof String) {
-				return (String) lhs + (String) rhs;
+			if(Rope.isString(lhs) && Rope.isString(rhs)) {
+				return Rope.concat(lhs, rhs);
 			}
 			
-			throw new RuntimeError(expression.operator, "Operands must be two numbers or two strings");
+			throw new RuntimeError(operator, "Operands must be two numbers or two strings");
 			
 		case SLASH:
-			checkNumberOperands(expression.operator, lhs, rhs);
+			checkNumberOperands(operator, lhs, rhs);
 			if ((double)rhs == 0) {
-				throw new RuntimeError(expression.operator, "Division by 0 error");
+				throw new RuntimeError(operator, "Division by 0 error");
 			}
 			return (double) lhs / (double) rhs;
 		case MOD:
-			checkNumberOperands(expression.operator, lhs, rhs);
+			checkNumberOperands(operator, lhs, rhs);
 			if ((double)rhs == 0) {
-				throw new RuntimeError(expression.operator, "Mod by 0 error");
+				throw new RuntimeError(operator, "Mod by 0 error");
 			}
 			return (double) lhs % (double) rhs;
 		case STAR:
@@ -90,7 +168,7 @@ public class Interpreter implements Expression.Visitor<Object> {
 		return null;
 	}
 
-	private void checkNumberOperands(Token operator, Object lhs, Object rhs) {
+	static void checkNumberOperands(Token operator, Object lhs, Object rhs) {
 		if (lhs instanceof Double && rhs instanceof Double) {
 			return;
 		}
@@ -100,7 +178,11 @@ public class Interpreter implements Expression.Visitor<Object> {
 
 	@Override
 	public Object visitGroupingExpression(Grouping expression) {
-		return evaluate(expression.expression);
+		if (depth == MAX_RECURSION) return iterative.evaluate(expression);
+		depth++;
+		Object value = evaluate(expression.expression);
+		depth--;
+		return value;
 	}
 
 	@Override
@@ -108,15 +190,27 @@ public class Interpreter implements Expression.Visitor<Object> {
 		return expression.value;
 	}
 
-	@SuppressWarnings("incomplete-switch")
 	@Override
 	public Object visitUnaryExpression(Unary expression) {
+		if (depth == MAX_RECURSION) return iterative.evaluate(expression);
+		depth++;
 		Object right = evaluate(expression.right);
-		switch(expression.operator.GetType()) {
+		depth--;
+		if (operators != null) operators[expression.operator.GetType().ordinal()]++;
+		return unary(expression.operator, right);
+	}
+
+	static Object unary(Token operator, Object right) {
+		return unary(operator.GetType(), operator, right);
+	}
+
+	@SuppressWarnings("incomplete-switch")
+	static Object unary(TokenType type, Token operator, Object right) {
+		switch(type) {
 		case NOT:
 			return !truthy(right);
 		case MINUS:
-			checkNumberOperand(expression.operator, right);
+			checkNumberOperand(operator, right);
 			return -(double)right;
 		}
 		return null;
@@ -126,20 +220,22 @@ public class Interpreter implements Expression.Visitor<Object> {
 		return exp.accept(this);
 	}
 	
-	private void checkNumberOperand(Token operator, Object operand) {
+	static void checkNumberOperand(Token operator, Object operand) {
 		if(operand instanceof Double) return;
 		throw new RuntimeError(operator, "Operand must be a number");
 	}
 	
-	private boolean truthy(Object o) {
+	static boolean truthy(Object o) {
 		if(o == null) return false;
 		if (o instanceof Boolean) return (boolean) o;
 		return true;
 	}
 	
-	private boolean equal(Object a, Object b) {
+	static boolean equal(Object a, Object b) {
 		if(a == null && b == null) return true;
 		if(a == null) return false;
+		if(a instanceof Rope) a = a.toString();
+		if(b instanceof Rope) b = b.toString();
 		return a.equals(b);		
 	}
 }
@@ -0,0 +1,44 @@
+package interpreter.jlox;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+// The Interpreter's semantics on an explicit stack. The recursive evaluators
+// hand it any subtree nested deeper than Interpreter.MAX_RECURSION.
+class IterativeEvaluator extends ExpressionWalker<Object> {
+
+	// Applications of each operator, by TokenType ordinal, when counting.
+	private long[] operators;
+
+	void countOperators(long[] counts) {
+		operators = counts;
+	}
+
+	Object evaluate(Expression exp) {
+		return walk(exp);
+	}
+
+	@Override
+	Object binary(Binary expression, Object left, Object right) {
+		if (operators != null) operators[expression.operator.GetType().ordinal()]++;
+		return Interpreter.binary(expression.operator, left, right);
+	}
+
+	@Override
+	Object grouping(Grouping expression, Object inner) {
+		return inner;
+	}
+
+	@Override
+	Object literal(Literal expression) {
+		return expression.value;
+	}
+
+	@Override
+	Object unary(Unary expression, Object right) {
+		if (operators != null) operators[expression.operator.GetType().ordinal()]++;
+		return Interpreter.unary(expression.operator, right);
+	}
+}
@@ -0,0 +1,110 @@
+package interpreter.jlox;
+
+import java.util.EnumSet;
+
+// Lookup tables behind the scanners. Every ASCII character has a class that
+// picks how a token starting with it is scanned, and keywords are matched in
+// place in the source, by first letter and then length, without cutting the
+// identifier out into a String first.
+final class Lexicon {
+
+    static final byte OTHER = 0;
+    static final byte SPACE = 1;
+    static final byte NEWLINE = 2;
+    // DIGIT and ALPHA are adjacent so isIdentifierPart() is one unsigned
+    // range check.
+    static final byte DIGIT = 3;
+    static final byte ALPHA = 4;
+    // A token of its own: '(' ')' '{' '}' ',' '.' '-' '+' '*' '%' ';'
+    static final byte SINGLE = 5;
+    // A token of its own, or a different one when followed by '=': '!' '=' '<' '>'
+    static final byte EQUALS_PAIR = 6;
+    static final byte SLASH = 7;
+    static final byte QUOTE = 8;
+
+    private static final byte[] CLASSES = new byte[128];
+    // For SINGLE and EQUALS_PAIR characters: the token alone, and followed by '='.
+    private static final TokenType[] ALONE = new TokenType[128];
+    private static final TokenType[] WITH_EQUAL = new TokenType[128];
+    // Keywords by first letter, 'a' to 'z'.
+    private static final TokenType[][] KEYWORDS = new TokenType[26][];
+
+    static {
+        CLASSES[' '] = SPACE;
+        CLASSES['\r'] = SPACE;
+        CLASSES['\t'] = SPACE;
+        CLASSES['\n'] = NEWLINE;
+        for (char c = '0'; c <= '9'; c++) CLASSES[c] = DIGIT;
+        for (char c = 'a'; c <= 'z'; c++) CLASSES[c] = ALPHA;
+        for (char c = 'A'; c <= 'Z'; c++) CLASSES[c] = ALPHA;
+        CLASSES['_'] = ALPHA;
+        CLASSES['/'] = SLASH;
+        CLASSES['"'] = QUOTE;
+
+        TokenType[] singles = { TokenType.LEFTPAREN, TokenType.RIGHTPAREN, TokenType.LEFTBRACE,
+                TokenType.RIGHTBRACE, TokenType.COMMA, TokenType.DOT, TokenType.MINUS, TokenType.PLUS,
+                TokenType.STAR, TokenType.MOD, TokenType.SEMICOLON };
+        for (TokenType type : singles) {
+            char c = type.spelling.charAt(0);
+            CLASSES[c] = SINGLE;
+            ALONE[c] = type;
+        }
+        pair(TokenType.NOT, TokenType.NOT_EQUAL);
+        pair(TokenType.EQUAL, TokenType.EQUAL_EQUAL);
+        pair(TokenType.LESS_THAN, TokenType.LESS_THAN_EQUAL);
+        pair(TokenType.GREATER_THAN, TokenType.GREATER_THAN_EQUAL);
+
+        for (int i = 0; i < KEYWORDS.length; i++) KEYWORDS[i] = new TokenType[0];
+        for (TokenType type : EnumSet.range(TokenType.AND, TokenType.WHILE)) {
+            int letter = type.spelling.charAt(0) - 'a';
+            TokenType[] candidates = KEYWORDS[letter];
+            TokenType[] grown = new TokenType[candidates.length + 1];
+            System.arraycopy(candidates, 0, grown, 0, candidates.length);
+            grown[candidates.length] = type;
+            KEYWORDS[letter] = grown;
+        }
+    }
+
+    private Lexicon() {
+    }
+
+    private static void pair(TokenType alone, TokenType withEqual) {
+        char c = alone.spelling.charAt(0);
+        CLASSES[c] = EQUALS_PAIR;
+        ALONE[c] = alone;
+        WITH_EQUAL[c] = withEqual;
+    }
+
+    static byte classOf(char c) {
+        return c < 128 ? CLASSES[c] : OTHER;
+    }
+
+    static boolean isIdentifierPart(char c) {
+        return c < 128 && Integer.compareUnsigned(CLASSES[c] - DIGIT, ALPHA - DIGIT) <= 0;
+    }
+
+    // The token for a SINGLE or EQUALS_PAIR character on its own.
+    static TokenType alone(char c) {
+        return ALONE[c];
+    }
+
+    // The token for an EQUALS_PAIR character followed by '='.
+    static TokenType withEqual(char c) {
+        return WITH_EQUAL[c];
+    }
+
+    // The keyword spelled by source[start, start + length), or IDENTIFIER.
+    // The range must already be a complete identifier.
+    static TokenType keyword(CharSequence source, int start, int length) {
+        int letter = source.charAt(start) - 'a';
+        if (letter < 0 || letter >= KEYWORDS.length) return TokenType.IDENTIFIER;
+        for (TokenType type : KEYWORDS[letter]) {
+            String spelling = type.spelling;
+            if (spelling.length() != length) continue;
+            int i = 1;
+            while (i < length && source.charAt(start + i) == spelling.charAt(i)) i++;
+            if (i == length) return type;
+        }
+        return TokenType.IDENTIFIER;
+    }
+}
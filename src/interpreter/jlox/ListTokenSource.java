@@ -0,0 +1,30 @@
+package interpreter.jlox;
+
+import java.util.List;
+
+class ListTokenSource implements TokenSource {
+
+	private final List<Token> tokens;
+	private int current = 0;
+
+	ListTokenSource(List<Token> tokens) {
+		this.tokens = tokens;
+	}
+
+	@Override
+	public Token next() {
+		Token token = tokens.get(current);
+		if (token.GetType() != TokenType.EOF) current++;
+		return token;
+	}
+
+	@Override
+	public Token peek() {
+		return tokens.get(current);
+	}
+
+	@Override
+	public Token previous() {
+		return tokens.get(current - 1);
+	}
+}
@@ -0,0 +1,65 @@
+package interpreter.jlox;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// A memory-mapped script seen as characters without copying it onto the heap.
+// Every byte is one char as far as the Scanner is concerned, which is exact
+// for ASCII; text is only decoded, with the same default charset runFile
+// uses, when a slice is turned into a String, so UTF-8 inside string
+// literals survives. Outside them, the Scanner asks characterEnd() where a
+// multi-byte character ends so it reports it once. Indices are byte offsets.
+class MappedSource implements CharSequence {
+
+	private final ByteBuffer bytes;
+	private final Charset charset;
+	private final boolean utf8;
+
+	MappedSource(ByteBuffer bytes) {
+		this(bytes, Charset.defaultCharset());
+	}
+
+	MappedSource(ByteBuffer bytes, Charset charset) {
+		this.bytes = bytes;
+		this.charset = charset;
+		this.utf8 = charset.equals(StandardCharsets.UTF_8);
+	}
+
+	ByteBuffer bytes() {
+		return bytes;
+	}
+
+	// Where the character starting at 'index' ends: past the continuation
+	// bytes its UTF-8 lead byte announces, or at index + 1 for ASCII, a
+	// stray byte, or a charset of one byte per character.
+	int characterEnd(int index) {
+		int lead = bytes.get(index) & 0xFF;
+		int length = !utf8 || lead < 0xC0 ? 1 : lead < 0xE0 ? 2 : lead < 0xF0 ? 3 : 4;
+		int end = index + 1;
+		while (end < index + length && end < bytes.limit() && (bytes.get(end) & 0xC0) == 0x80) end++;
+		return end;
+	}
+
+	@Override
+	public int length() {
+		return bytes.limit();
+	}
+
+	@Override
+	public char charAt(int index) {
+		return (char) (bytes.get(index) & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		byte[] slice = new byte[end - start];
+		bytes.get(start, slice);
+		return new String(slice, charset);
+	}
+
+	@Override
+	public String toString() {
+		return subSequence(0, length()).toString();
+	}
+}
@@ -0,0 +1,92 @@
+package interpreter.jlox;
+
+import java.util.IdentityHashMap;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+// The Interpreter's semantics, remembering the value of every node it
+// evaluates. On a tree built by an ExpressionInterner, where equal subtrees
+// are one shared node, each distinct subtree is evaluated once per run and
+// every other occurrence reuses its value. Expressions have no side effects,
+// so this changes nothing but the time taken.
+//
+// Only values are remembered. A subtree that raises a RuntimeError ends the
+// run before anything else can reuse it, so the error comes from the same
+// node, and carries the same Token, as without memoizing.
+class MemoizingEvaluator extends ExpressionWalker<Object> {
+
+	private final IdentityHashMap<Expression, Object> values = new IdentityHashMap<>();
+	private long evaluated = 0;
+	private long reused = 0;
+	// Applications of each operator, by TokenType ordinal, when counting.
+	// Reused values were not applied again and are not counted.
+	private long[] operators;
+
+	void countOperators(long[] counts) {
+		operators = counts;
+	}
+
+	Object evaluate(Expression exp) {
+		values.clear();
+		evaluated = 0;
+		reused = 0;
+		try {
+			return walk(exp);
+		}
+		finally {
+			evaluated = values.size();
+			values.clear();
+		}
+	}
+
+	// From the last run: how many distinct nodes were evaluated, and how many
+	// times one was needed again and its value reused.
+	long evaluated() {
+		return evaluated;
+	}
+
+	long reused() {
+		return reused;
+	}
+
+	@Override
+	boolean known(Expression exp) {
+		return values.containsKey(exp);
+	}
+
+	@Override
+	Object recall(Expression exp) {
+		reused++;
+		return values.get(exp);
+	}
+
+	@Override
+	Object binary(Binary expression, Object left, Object right) {
+		if (operators != null) operators[expression.operator.GetType().ordinal()]++;
+		return remember(expression, Interpreter.binary(expression.operator, left, right));
+	}
+
+	@Override
+	Object grouping(Grouping expression, Object inner) {
+		return remember(expression, inner);
+	}
+
+	@Override
+	Object literal(Literal expression) {
+		return expression.value;
+	}
+
+	@Override
+	Object unary(Unary expression, Object right) {
+		if (operators != null) operators[expression.operator.GetType().ordinal()]++;
+		return remember(expression, Interpreter.unary(expression.operator, right));
+	}
+
+	private Object remember(Expression expression, Object value) {
+		values.put(expression, value);
+		return value;
+	}
+}
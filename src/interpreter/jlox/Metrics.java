@@ -0,0 +1,313 @@
+package interpreter.jlox;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.AnnotationElement;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventFactory;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.ValueDescriptor;
+
+// Where the time of an Engine's runs goes: time spent in each phase, how many
+// tokens were scanned, nodes parsed and expressions evaluated, runtime errors
+// by message, and how often each operator was applied by the tree-walking
+// evaluators. Shared by all of an Engine's Sessions and updated through
+// LongAdders, so threads do not contend; operator counts go into an array
+// each Interpreter owns and are added in once per run.
+//
+// Each phase is also a jlox.Phase event for Java Flight Recorder, and the
+// totals are a periodic jlox.Metrics event, when a recording asks for them.
+// An Engine without metrics has no Metrics and does none of this.
+public final class Metrics {
+
+	enum Phase {
+		SCAN, PARSE, PRINT, COMPILE, EXECUTE;
+
+		final String label = name().toLowerCase();
+	}
+
+	private static final TokenType[] TYPES = TokenType.values();
+
+	private final LongAdder[] phaseNanos = adders(Phase.values().length);
+	private final LongAdder[] phaseCounts = adders(Phase.values().length);
+	private final LongAdder[] operators = adders(TYPES.length);
+	private final LongAdder tokens = new LongAdder();
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder evaluations = new LongAdder();
+	private final ConcurrentHashMap<String, LongAdder> runtimeErrors = new ConcurrentHashMap<>();
+
+	Metrics() {
+		Events.register(this);
+	}
+
+	private static LongAdder[] adders(int count) {
+		LongAdder[] adders = new LongAdder[count];
+		for (int i = 0; i < count; i++) adders[i] = new LongAdder();
+		return adders;
+	}
+
+	// Pairs with end(): long started = metrics.start(); ... metrics.end(phase, started);
+	long start() {
+		return System.nanoTime();
+	}
+
+	void end(Phase phase, long started) {
+		long nanos = System.nanoTime() - started;
+		phaseNanos[phase.ordinal()].add(nanos);
+		phaseCounts[phase.ordinal()].increment();
+		Events.phase(phase, nanos);
+	}
+
+	void tokens(int count) {
+		tokens.add(count);
+	}
+
+	void nodes(long count) {
+		nodes.add(count);
+	}
+
+	void evaluation() {
+		evaluations.increment();
+	}
+
+	void runtimeError(String message) {
+		runtimeErrors.computeIfAbsent(message, key -> new LongAdder()).increment();
+	}
+
+	// Adds in an Interpreter's per-operator counts, by TokenType ordinal,
+	// and zeroes them for its next run.
+	void operators(long[] counts) {
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				operators[i].add(counts[i]);
+				counts[i] = 0;
+			}
+		}
+	}
+
+	// Nodes in a tree, walked on an explicit stack as the evaluators do.
+	static long count(Expression expression) {
+		long count = 0;
+		ArrayDeque<Expression> pending = new ArrayDeque<>();
+		pending.push(expression);
+		while (!pending.isEmpty()) {
+			Expression node = pending.pop();
+			count++;
+			if (node instanceof Expression.Binary) {
+				pending.push(((Expression.Binary) node).left);
+				pending.push(((Expression.Binary) node).right);
+			}
+			else if (node instanceof Expression.Unary) {
+				pending.push(((Expression.Unary) node).right);
+			}
+			else if (node instanceof Expression.Grouping) {
+				pending.push(((Expression.Grouping) node).expression);
+			}
+		}
+		return count;
+	}
+
+	// One line per kind of figure, each starting "[metrics]".
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append("[metrics] evaluations ").append(evaluations.sum())
+			.append(", tokens ").append(tokens.sum())
+			.append(", nodes ").append(nodes.sum()).append('\n');
+		text.append("[metrics] phases");
+		for (Phase phase : Phase.values()) {
+			text.append(phase == Phase.SCAN ? " " : ", ").append(phase.label).append(' ')
+				.append(String.format("%.3f ms", phaseNanos[phase.ordinal()].sum() / 1e6))
+				.append(" (").append(phaseCounts[phase.ordinal()].sum()).append(')');
+		}
+		text.append('\n').append("[metrics] operators");
+		int listed = 0;
+		for (Map.Entry<String, Long> entry : operatorCounts().entrySet()) {
+			text.append(listed++ == 0 ? " " : ", ").append(entry.getKey()).append(' ').append(entry.getValue());
+		}
+		text.append('\n').append("[metrics] runtime errors");
+		listed = 0;
+		for (Map.Entry<String, Long> entry : errorCounts().entrySet()) {
+			text.append(listed++ == 0 ? " " : ", ").append('"').append(entry.getKey()).append("\" ")
+				.append(entry.getValue());
+		}
+		return text.toString();
+	}
+
+	// The same figures as one JSON object, on one line.
+	public String toJson() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"evaluations\":").append(evaluations.sum())
+			.append(",\"tokens\":").append(tokens.sum())
+			.append(",\"nodes\":").append(nodes.sum())
+			.append(",\"phases\":{");
+		for (Phase phase : Phase.values()) {
+			if (phase != Phase.SCAN) json.append(',');
+			json.append('"').append(phase.label).append("\":{\"count\":").append(phaseCounts[phase.ordinal()].sum())
+				.append(",\"nanos\":").append(phaseNanos[phase.ordinal()].sum()).append('}');
+		}
+		json.append("},\"operators\":");
+		object(json, operatorCounts());
+		json.append(",\"runtimeErrors\":");
+		object(json, errorCounts());
+		return json.append('}').toString();
+	}
+
+	private Map<String, Long> operatorCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		for (TokenType type : TYPES) {
+			long count = operators[type.ordinal()].sum();
+			if (count != 0) counts.put(type.name(), count);
+		}
+		return counts;
+	}
+
+	private Map<String, Long> errorCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		runtimeErrors.forEach((message, count) -> counts.put(message, count.sum()));
+		return counts;
+	}
+
+	private static void object(StringBuilder json, Map<String, Long> counts) {
+		json.append('{');
+		int listed = 0;
+		for (Map.Entry<String, Long> entry : counts.entrySet()) {
+			if (listed++ > 0) json.append(',');
+			quote(json, entry.getKey());
+			json.append(':').append(entry.getValue());
+		}
+		json.append('}');
+	}
+
+	private static void quote(StringBuilder json, String text) {
+		json.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') json.append('\\').append(c);
+			else if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+			else json.append(c);
+		}
+		json.append('"');
+	}
+
+	// The flight recorder events. The release this project compiles against
+	// cannot see the internal class jdk.jfr.Event is built on, so the events
+	// are declared through EventFactory and their methods called through
+	// method handles, which the compiler does not need to resolve.
+	private static final class Events {
+		private static final MethodHandle SHOULD_COMMIT = handle("shouldCommit", boolean.class);
+		private static final MethodHandle SET = handle("set", void.class, int.class, Object.class);
+		private static final MethodHandle COMMIT = handle("commit", void.class);
+
+		static final EventFactory PHASE = EventFactory.create(
+				List.of(new AnnotationElement(Name.class, "jlox.Phase"),
+						new AnnotationElement(Label.class, "jlox Phase"),
+						new AnnotationElement(Category.class, new String[] { "jlox" }),
+						new AnnotationElement(Description.class,
+								"One phase of one run: scan, parse, print, compile or execute"),
+						new AnnotationElement(StackTrace.class, false)),
+				List.of(new ValueDescriptor(String.class, "phase"),
+						new ValueDescriptor(long.class, "elapsed",
+								List.of(new AnnotationElement(Timespan.class, Timespan.NANOSECONDS)))));
+
+		private static final EventType PHASE_TYPE = PHASE.getEventType();
+
+		static final EventFactory TOTAL = EventFactory.create(
+				List.of(new AnnotationElement(Name.class, "jlox.Metrics"),
+						new AnnotationElement(Label.class, "jlox Metrics"),
+						new AnnotationElement(Category.class, new String[] { "jlox" }),
+						new AnnotationElement(Description.class, "Running totals of an Engine's metrics"),
+						new AnnotationElement(StackTrace.class, false),
+						new AnnotationElement(Period.class, "1 s")),
+				List.of(new ValueDescriptor(long.class, "evaluations"), new ValueDescriptor(long.class, "tokens"),
+						new ValueDescriptor(long.class, "nodes"), new ValueDescriptor(long.class, "runtimeErrors"),
+						new ValueDescriptor(long.class, "executeNanos",
+								List.of(new AnnotationElement(Timespan.class, Timespan.NANOSECONDS)))));
+
+		// Every live Metrics, for the periodic event. Engines that are no
+		// longer used drop out.
+		private static final Set<Metrics> LIVE = Collections.synchronizedSet(
+				Collections.newSetFromMap(new WeakHashMap<>()));
+
+		@SuppressWarnings("unchecked")
+		private static final Class<? extends Event> TOTAL_CLASS =
+				(Class<? extends Event>) ((Object) TOTAL.newEvent()).getClass();
+
+		static {
+			FlightRecorder.addPeriodicEvent(TOTAL_CLASS, Events::totals);
+		}
+
+		static void register(Metrics metrics) {
+			LIVE.add(metrics);
+		}
+
+		static void phase(Phase phase, long nanos) {
+			// No event, and no call through a handle, unless a recording
+			// has phases turned on.
+			if (!PHASE_TYPE.isEnabled()) return;
+			Object event = PHASE.newEvent();
+			try {
+				if ((boolean) SHOULD_COMMIT.invoke(event)) {
+					SET.invoke(event, 0, phase.label);
+					SET.invoke(event, 1, nanos);
+					COMMIT.invoke(event);
+				}
+			}
+			catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private static void totals() {
+			Metrics[] all;
+			synchronized (LIVE) {
+				all = LIVE.toArray(new Metrics[0]);
+			}
+			for (Metrics metrics : all) {
+				long errors = 0;
+				for (LongAdder count : metrics.runtimeErrors.values()) errors += count.sum();
+				Object event = TOTAL.newEvent();
+				try {
+					SET.invoke(event, 0, metrics.evaluations.sum());
+					SET.invoke(event, 1, metrics.tokens.sum());
+					SET.invoke(event, 2, metrics.nodes.sum());
+					SET.invoke(event, 3, errors);
+					SET.invoke(event, 4, metrics.phaseNanos[Phase.EXECUTE.ordinal()].sum());
+					COMMIT.invoke(event);
+				}
+				catch (Throwable e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+
+		private static MethodHandle handle(String name, Class<?> result, Class<?>... parameters) {
+			try {
+				return MethodHandles.publicLookup().findVirtual(Event.class, name,
+						MethodType.methodType(result, parameters));
+			}
+			catch (ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+	}
+}
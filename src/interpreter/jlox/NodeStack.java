@@ -0,0 +1,120 @@
+package interpreter.jlox;
+
+import java.util.Arrays;
+
+// The operand stack the Parser and ASTDump.Reader build a tree on, in postfix
+// order: a literal pushes its node, and each operator pops its operands and
+// pushes the node built from them. Trees stack their node objects; an arena
+// stacks plain int indexes, so building one boxes nothing.
+abstract class NodeStack {
+
+	// How many nodes are on the stack.
+	int size = 0;
+
+	abstract void literal(Object value);
+
+	abstract void grouping();
+
+	abstract void unary(Token operator);
+
+	abstract void binary(Token operator);
+
+	// Empties the stack, dropping whatever a syntax error left on it.
+	abstract void clear();
+
+	// Nodes built through a Parser.Nodes.
+	static final class Tree<N> extends NodeStack {
+		private final Parser.Nodes<N> nodes;
+		private Object[] stack = new Object[16];
+
+		Tree(Parser.Nodes<N> nodes) {
+			this.nodes = nodes;
+		}
+
+		@Override
+		void literal(Object value) {
+			push(nodes.literal(value));
+		}
+
+		@Override
+		void grouping() {
+			push(nodes.grouping(pop()));
+		}
+
+		@Override
+		void unary(Token operator) {
+			push(nodes.unary(operator, pop()));
+		}
+
+		@Override
+		void binary(Token operator) {
+			N right = pop();
+			N left = pop();
+			push(nodes.binary(left, operator, right));
+		}
+
+		@Override
+		void clear() {
+			Arrays.fill(stack, 0, size, null);
+			size = 0;
+		}
+
+		private void push(N node) {
+			if (size == stack.length) stack = Arrays.copyOf(stack, size * 2);
+			stack[size++] = node;
+		}
+
+		@SuppressWarnings("unchecked")
+		N pop() {
+			N node = (N) stack[--size];
+			stack[size] = null;
+			return node;
+		}
+	}
+
+	// Nodes added to an ExpressionArena, stacked by index.
+	static final class Arena extends NodeStack {
+		private final ExpressionArena arena;
+		private int[] stack = new int[16];
+
+		Arena(ExpressionArena arena) {
+			this.arena = arena;
+		}
+
+		@Override
+		void literal(Object value) {
+			push(arena.literal(value));
+		}
+
+		@Override
+		void grouping() {
+			push(arena.grouping(pop()));
+		}
+
+		@Override
+		void unary(Token operator) {
+			push(arena.unary(operator, pop()));
+		}
+
+		@Override
+		void binary(Token operator) {
+			int right = pop();
+			int left = pop();
+			push(arena.binary(left, operator, right));
+		}
+
+		@Override
+		void clear() {
+			size = 0;
+		}
+
+		private void push(int node) {
+			if (size == stack.length) stack = Arrays.copyOf(stack, size * 2);
+			stack[size++] = node;
+		}
+
+		int pop() {
+			return stack[--size];
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package interpreter.jlox;
+
+import java.math.BigInteger;
+
+// Turns a NUMBER lexeme, digits with an optional fraction, into the same
+// double Double.parseDouble gives, reading the characters in place instead
+// of from a String cut out of the source.
+//
+// Up to 19 significant digits are gathered into a long. When that long and
+// the power of ten are both exact doubles the answer is one correctly
+// rounded multiply or divide. Otherwise the Eisel-Lemire algorithm
+// multiplies by a 128-bit approximation of the power of ten and checks the
+// bits it kept are enough to round correctly. In the rare cases they are
+// not, and for literals out of its range, Double.parseDouble decides.
+final class NumberParser {
+
+    private static final int MIN_EXPONENT = -348;
+    private static final int MAX_EXPONENT = 347;
+    private static final int MAX_DIGITS = 19;
+
+    // Powers of ten that are exact doubles.
+    private static final double[] EXACT = new double[23];
+
+    // The top 128 bits of 10^q, rounded down, for q from MIN_EXPONENT to
+    // MAX_EXPONENT, as high and low words.
+    private static final long[] HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    private static final long[] LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+    static {
+        double power = 1;
+        for (int i = 0; i < EXACT.length; i++) {
+            EXACT[i] = power;
+            power *= 10;
+        }
+        BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++) {
+            BigInteger mantissa;
+            if (q >= 0) {
+                mantissa = BigInteger.TEN.pow(q);
+            }
+            else {
+                BigInteger divisor = BigInteger.TEN.pow(-q);
+                mantissa = BigInteger.ONE.shiftLeft(divisor.bitLength() + 128).divide(divisor);
+            }
+            int shift = mantissa.bitLength() - 128;
+            mantissa = shift > 0 ? mantissa.shiftRight(shift) : mantissa.shiftLeft(-shift);
+            HIGH[q - MIN_EXPONENT] = mantissa.shiftRight(64).longValue();
+            LOW[q - MIN_EXPONENT] = mantissa.and(mask).longValue();
+        }
+    }
+
+    private NumberParser() {
+    }
+
+    static double parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    // source[start, start + length) must match the grammar's NUMBER.
+    static double parse(CharSequence source, int start, int length) {
+        int end = start + length;
+        long digits = 0;
+        int count = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        int i = start;
+        for (; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '.') break;
+            if (count < MAX_DIGITS) {
+                digits = digits * 10 + (c - '0');
+                if (digits != 0) count++;
+            }
+            else {
+                // Digits past the 19th still scale the integer part.
+                exponent++;
+                if (c != '0') truncated = true;
+            }
+        }
+        for (i++; i < end; i++) {
+            char c = source.charAt(i);
+            if (count < MAX_DIGITS) {
+                digits = digits * 10 + (c - '0');
+                if (digits != 0) count++;
+                exponent--;
+            }
+            else if (c != '0') {
+                truncated = true;
+            }
+        }
+
+        if (digits == 0) return 0.0;
+        if (!truncated) {
+            if (Long.compareUnsigned(digits, 1L << 53) <= 0 && exponent >= -22 && exponent <= 22) {
+                return exponent < 0 ? digits / EXACT[-exponent] : digits * EXACT[exponent];
+            }
+            double value = eiselLemire(digits, exponent);
+            if (!Double.isNaN(value)) return value;
+        }
+        else {
+            // The true value lies between these two; if both round the same
+            // way, so does it.
+            double value = eiselLemire(digits, exponent);
+            if (!Double.isNaN(value) && value == eiselLemire(digits + 1, exponent)) return value;
+        }
+        return Double.parseDouble(source.subSequence(start, end).toString());
+    }
+
+    // digits * 10^exponent correctly rounded, or NaN when the 128-bit
+    // product cannot settle the rounding or the result is subnormal or
+    // infinite. 'digits' is unsigned and not zero.
+    private static double eiselLemire(long digits, int exponent) {
+        if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT) return Double.NaN;
+        int index = exponent - MIN_EXPONENT;
+
+        int zeros = Long.numberOfLeadingZeros(digits);
+        long mantissa = digits << zeros;
+        // 217706 / 2^16 is log2(10) to enough places for this range.
+        long exponent2 = ((217706L * exponent) >> 16) + 64 + 1023 - zeros;
+
+        long high = multiplyHigh(mantissa, HIGH[index]);
+        long low = mantissa * HIGH[index];
+
+        // The low word of the power was left out; if adding it could carry
+        // into the bits kept, take it into account.
+        if ((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + mantissa, mantissa) < 0) {
+            long extraHigh = multiplyHigh(mantissa, LOW[index]);
+            long extraLow = mantissa * LOW[index];
+            long mergedHigh = high;
+            long mergedLow = low + extraHigh;
+            if (Long.compareUnsigned(mergedLow, low) < 0) mergedHigh++;
+            if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0
+                    && Long.compareUnsigned(extraLow + mantissa, mantissa) < 0) {
+                return Double.NaN;
+            }
+            high = mergedHigh;
+            low = mergedLow;
+        }
+
+        long top = high >>> 63;
+        long bits = high >>> (top + 9);
+        exponent2 -= 1 ^ top;
+
+        // Exactly halfway as far as these bits can tell.
+        if (low == 0 && (high & 0x1FF) == 0 && (bits & 3) == 1) return Double.NaN;
+
+        bits += bits & 1;
+        bits >>>= 1;
+        if ((bits >>> 53) > 0) {
+            bits >>>= 1;
+            exponent2++;
+        }
+        if (Long.compareUnsigned(exponent2 - 1, 0x7FF - 1) >= 0) return Double.NaN;
+        return Double.longBitsToDouble(exponent2 << 52 | bits & 0x000FFFFFFFFFFFFFL);
+    }
+
+    // The high word of the unsigned 128-bit product.
+    private static long multiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+}
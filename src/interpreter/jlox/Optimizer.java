@@ -0,0 +1,167 @@
+package interpreter.jlox;
+
+import java.util.ArrayDeque;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+// Rewrites a parsed tree into an equivalent, cheaper one: constant subtrees are
+// folded, groupings dropped and a few identities removed. A subtree whose
+// evaluation fails is left in place so the error is raised at run time with
+// its original operator Token.
+public class Optimizer extends ExpressionWalker<Expression> {
+
+	private final Parser.Nodes<Expression> nodes;
+
+	Optimizer() {
+		this(Parser.TREE);
+	}
+
+	// New nodes are built through 'nodes', so an ExpressionInterner keeps the
+	// rewritten tree as shared as the parsed one.
+	Optimizer(Parser.Nodes<Expression> nodes) {
+		this.nodes = nodes;
+	}
+
+	Expression optimize(Expression exp) {
+		return walk(exp);
+	}
+
+	@Override
+	Expression binary(Binary expression, Expression left, Expression right) {
+		Token operator = expression.operator;
+
+		if (left instanceof Literal && right instanceof Literal) {
+			try {
+				return nodes.literal(Interpreter.binary(operator,
+						((Literal) left).value, ((Literal) right).value));
+			}
+			catch(RuntimeException e) {
+				return nodes.binary(left, operator, right);
+			}
+		}
+
+		switch(operator.GetType()) {
+		case STAR:
+			if (isOne(right) && isNumber(left)) return left;
+			if (isOne(left) && isNumber(right)) return right;
+			break;
+		case SLASH:
+			if (isOne(right) && isNumber(left)) return left;
+			break;
+		case MINUS:
+			if (isPositiveZero(right) && isNumber(left)) return left;
+			break;
+		default:
+			break;
+		}
+
+		if (left == expression.left && right == expression.right) return expression;
+		return nodes.binary(left, operator, right);
+	}
+
+	@Override
+	Expression grouping(Grouping expression, Expression inner) {
+		return inner;
+	}
+
+	@Override
+	Expression literal(Literal expression) {
+		return expression;
+	}
+
+	@Override
+	Expression unary(Unary expression, Expression right) {
+		Token operator = expression.operator;
+
+		if (right instanceof Literal) {
+			try {
+				return nodes.literal(Interpreter.unary(operator, ((Literal) right).value));
+			}
+			catch(RuntimeException e) {
+				return nodes.unary(operator, right);
+			}
+		}
+
+		// !!x is x and --x is x, as long as x already has the right type.
+		if (right instanceof Unary) {
+			Unary inner = (Unary) right;
+			TokenType type = operator.GetType();
+			if (inner.operator.GetType() == type) {
+				if (type == TokenType.NOT && isBoolean(inner.right)) return inner.right;
+				if (type == TokenType.MINUS && isNumber(inner.right)) return inner.right;
+			}
+		}
+
+		if (right == expression.right) return expression;
+		return nodes.unary(operator, right);
+	}
+
+	private static boolean isOne(Expression exp) {
+		return exp instanceof Literal && Double.valueOf(1.0).equals(((Literal) exp).value);
+	}
+
+	private static boolean isPositiveZero(Expression exp) {
+		return exp instanceof Literal && Double.valueOf(0.0).equals(((Literal) exp).value);
+	}
+
+	// True when exp either evaluates to a number or raises an error. A sum
+	// is numeric if either side is, and chains of them are followed with a
+	// worklist rather than recursion, as they can be arbitrarily long.
+	private static boolean isNumber(Expression exp) {
+		ArrayDeque<Expression> pending = new ArrayDeque<>();
+		pending.push(exp);
+		while (!pending.isEmpty()) {
+			exp = pending.pop();
+			if (exp instanceof Literal) {
+				if (((Literal) exp).value instanceof Double) return true;
+			}
+			else if (exp instanceof Grouping) {
+				pending.push(((Grouping) exp).expression);
+			}
+			else if (exp instanceof Unary) {
+				if (((Unary) exp).operator.GetType() == TokenType.MINUS) return true;
+			}
+			else if (exp instanceof Binary) {
+				Binary binary = (Binary) exp;
+				switch(binary.operator.GetType()) {
+				case MINUS:
+				case SLASH:
+				case MOD:
+				case STAR:
+					return true;
+				case PLUS:
+					pending.push(binary.right);
+					pending.push(binary.left);
+					break;
+				default:
+					break;
+				}
+			}
+		}
+		return false;
+	}
+
+	// True when exp either evaluates to a boolean or raises an error.
+	private static boolean isBoolean(Expression exp) {
+		if (exp instanceof Literal) return ((Literal) exp).value instanceof Boolean;
+		if (exp instanceof Grouping) return isBoolean(((Grouping) exp).expression);
+		if (exp instanceof Unary) return ((Unary) exp).operator.GetType() == TokenType.NOT;
+		if (exp instanceof Binary) {
+			switch(((Binary) exp).operator.GetType()) {
+			case GREATER_THAN:
+			case GREATER_THAN_EQUAL:
+			case LESS_THAN:
+			case LESS_THAN_EQUAL:
+			case NOT_EQUAL:
+			case EQUAL_EQUAL:
+				return true;
+			default:
+				return false;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,159 @@
+package interpreter.jlox;
+
+import java.util.Arrays;
+
+// Scanner output as parallel primitive arrays instead of a List<Token>.
+// Lexemes are slices of the source, and the few literals the scanner
+// computes up front (string values) live in a side table keyed by token
+// index. A Token is only built when something asks for one.
+public class PackedTokens {
+
+	private static final TokenType[] TYPES = TokenType.values();
+
+	private final CharSequence source;
+	private byte[] types;
+	private int[] starts;
+	private int[] lengths;
+	private int[] lines;
+	private int count = 0;
+
+	private int[] literalIndices = new int[8];
+	private Object[] literalValues = new Object[8];
+	private int literalCount = 0;
+
+	PackedTokens(CharSequence source) {
+		this.source = source;
+		// Small to begin with: blanks and long strings hold few tokens per
+		// character. The arrays double as they fill, and trim() cuts them to
+		// size at the end.
+		int capacity = 64;
+		types = new byte[capacity];
+		starts = new int[capacity];
+		lengths = new int[capacity];
+		lines = new int[capacity];
+	}
+
+	void add(TokenType type, int start, int length, int line, Object literal) {
+		if (count == types.length) {
+			int capacity = count * 2;
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			lines = Arrays.copyOf(lines, capacity);
+		}
+		types[count] = (byte) type.ordinal();
+		starts[count] = start;
+		lengths[count] = length;
+		lines[count] = line;
+
+		if (literal != null) {
+			if (literalCount == literalIndices.length) {
+				literalIndices = Arrays.copyOf(literalIndices, literalCount * 2);
+				literalValues = Arrays.copyOf(literalValues, literalCount * 2);
+			}
+			literalIndices[literalCount] = count;
+			literalValues[literalCount] = literal;
+			literalCount++;
+		}
+		count++;
+	}
+
+	// Called once scanning is done, so a kept PackedTokens holds little
+	// spare room. Arrays at least three quarters full are not worth copying.
+	void trim() {
+		if (count >= types.length - types.length / 4) return;
+		types = Arrays.copyOf(types, count);
+		starts = Arrays.copyOf(starts, count);
+		lengths = Arrays.copyOf(lengths, count);
+		lines = Arrays.copyOf(lines, count);
+	}
+
+	public int size() {
+		return count;
+	}
+
+	TokenType type(int index) {
+		return TYPES[types[index]];
+	}
+
+	int line(int index) {
+		return lines[index];
+	}
+
+	String lexeme(int index) {
+		String spelling = type(index).spelling;
+		if (spelling != null) return spelling;
+		return source.subSequence(starts[index], starts[index] + lengths[index]).toString();
+	}
+
+	Object literal(int index) {
+		if (type(index) == TokenType.NUMBER) {
+			return NumberParser.parse(source, starts[index], lengths[index]);
+		}
+		// Indices were added in increasing order.
+		int slot = Arrays.binarySearch(literalIndices, 0, literalCount, index);
+		return slot >= 0 ? literalValues[slot] : null;
+	}
+
+	Token token(int index) {
+		TokenType type = type(index);
+		if (type.spelling != null) {
+			return new Token(type, type.spelling, null, lines[index]);
+		}
+		Object literal = type == TokenType.NUMBER ? null : literal(index);
+		return new Token(type, source, starts[index], lengths[index], literal, lines[index]);
+	}
+
+	TokenSource cursor() {
+		return new Cursor();
+	}
+
+	private class Cursor implements TokenSource {
+		private int current = 0;
+		// Literals are read in token order, so a moving slot avoids searching.
+		private int slot = 0;
+
+		@Override
+		public Token next() {
+			Token token = token(current);
+			skip();
+			return token;
+		}
+
+		@Override
+		public Token peek() {
+			return token(current);
+		}
+
+		@Override
+		public Token previous() {
+			return token(current - 1);
+		}
+
+		@Override
+		public TokenType peekType() {
+			return type(current);
+		}
+
+		@Override
+		public void skip() {
+			if (types[current] != TokenType.EOF.ordinal()) current++;
+		}
+
+		@Override
+		public TokenType previousType() {
+			return type(current - 1);
+		}
+
+		@Override
+		public Object previousLiteral() {
+			int index = current - 1;
+			if (type(index) == TokenType.NUMBER) {
+				return NumberParser.parse(source, starts[index], lengths[index]);
+			}
+			while (slot < literalCount && literalIndices[slot] < index) slot++;
+			if (slot < literalCount && literalIndices[slot] == index) return literalValues[slot];
+			return literal(index);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package interpreter.jlox;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class Parser {
@@ -8,23 +9,107 @@ public class Parser {
 		private static final long serialVersionUID = 1L;
 	}
 	
-	private final List<Token> tokens;
-	private int current = 0;
+	// What the grammar builds from each rule it matches.
+	interface Nodes<N> {
+		N binary(N left, Token operator, N right);
+		N grouping(N expression);
+		N literal(Object value);
+		N unary(Token operator, N right);
+	}
+	
+	static final Nodes<Expression> TREE = new Nodes<Expression>() {
+		@Override
+		public Expression binary(Expression left, Token operator, Expression right) {
+			return new Expression.Binary(left, operator, right);
+		}
+		
+		@Override
+		public Expression grouping(Expression expression) {
+			return new Expression.Grouping(expression);
+		}
+		
+		@Override
+		public Expression literal(Object value) {
+			return new Expression.Literal(value);
+		}
+		
+		@Override
+		public Expression unary(Token operator, Expression right) {
+			return new Expression.Unary(operator, right);
+		}
+	};
+	
+	// Shared so that match() does not allocate a varargs array per call.
+	private static final TokenType[] EQUALITY = { TokenType.NOT_EQUAL, TokenType.EQUAL_EQUAL };
+	private static final TokenType[] COMPARISON = { TokenType.GREATER_THAN, TokenType.GREATER_THAN_EQUAL,
+			TokenType.LESS_THAN, TokenType.LESS_THAN_EQUAL };
+	private static final TokenType[] TERM = { TokenType.MINUS, TokenType.PLUS };
+	private static final TokenType[] FACTOR = { TokenType.MOD, TokenType.SLASH, TokenType.STAR };
+	private static final TokenType[] UNARY = { TokenType.NOT, TokenType.MINUS };
+	private static final TokenType[] LITERAL = { TokenType.NUMBER, TokenType.STRING };
+	
+	// Binding strength of each token as a binary operator, by TokenType
+	// ordinal. GROUP marks both tokens that are not binary operators and an
+	// open '(' on the operator stack; PREFIX is a stacked unary operator.
+	private static final int GROUP = 0;
+	private static final int PREFIX = 5;
+	private static final byte[] PRECEDENCE = new byte[TokenType.values().length];
+	static {
+		for (TokenType type : EQUALITY) PRECEDENCE[type.ordinal()] = 1;
+		for (TokenType type : COMPARISON) PRECEDENCE[type.ordinal()] = 2;
+		for (TokenType type : TERM) PRECEDENCE[type.ordinal()] = 3;
+		for (TokenType type : FACTOR) PRECEDENCE[type.ordinal()] = 4;
+	}
+	
+	private final TokenSource tokens;
+	private final Console console;
+	private NodeStack.Tree<Expression> tree = new NodeStack.Tree<>(TREE);
+	
+	private Token[] operators = new Token[16];
+	private byte[] precedences = new byte[16];
+	private int operatorCount = 0;
 	
 	public Parser(List<Token> toks) {
-		this.tokens = toks;
+		this(toks, Console.standard());
+	}
+	
+	public Parser(TokenSource source) {
+		this(source, Console.standard());
 	}
 	
-	@SuppressWarnings({ "incomplete-switch", "unused" })
+	public Parser(PackedTokens packed) {
+		this(packed, Console.standard());
+	}
+	
+	Parser(List<Token> toks, Console console) {
+		this(new ListTokenSource(toks), console);
+	}
+	
+	Parser(TokenSource source, Console console) {
+		this.tokens = source;
+		this.console = console;
+	}
+	
+	Parser(PackedTokens packed, Console console) {
+		this(packed.cursor(), console);
+	}
+	
+	// Builds the trees parse() and parseNext() return through the interner,
+	// so repeated subexpressions come back as one shared node.
+	void intern(ExpressionInterner interner) {
+		this.tree = new NodeStack.Tree<>(interner);
+	}
+	
+	@SuppressWarnings("incomplete-switch")
 	private void synchronize() {
 		advance();
 		
 		while(!end()) {
-			if(previous().GetType() == TokenType.SEMICOLON) {
+			if(tokens.previousType() == TokenType.SEMICOLON) {
 				return;
 		}
 			
-			switch(peek().GetType()) {
+			switch(tokens.peekType()) {
 				case CLASS:
 				case FUN:
 				case VAR:
@@ -42,102 +127,161 @@ public class Parser {
 	public Expression parse()
 	{
 		try {
-			return expression();
+			expression(tree);
+			return tree.pop();
 		}
 		catch(ParseError err) {
 			return null;
 		}
 	}
 	
-	
-	private Expression expression() {
-		return equality();
+	// Same grammar, building the compact index-based form instead of an
+	// Expression object graph, with the nodes stacked as plain ints. Returns
+	// null after a syntax error.
+	ExpressionArena parseArena()
+	{
+		ExpressionArena arena = new ExpressionArena();
+		NodeStack.Arena nodes = new NodeStack.Arena(arena);
+		try {
+			expression(nodes);
+			arena.root = nodes.pop();
+			arena.trim();
+			return arena;
+		}
+		catch(ParseError err) {
+			return null;
+		}
 	}
 	
-	private Expression equality() {
-		Expression exp = comparison();
-		
-		while (match(TokenType.NOT_EQUAL, TokenType.EQUAL_EQUAL)) {
-			Token op = previous();
-			Expression right = comparison();
-			exp = new Expression.Binary(exp, op, right);
+	// For inputs holding a sequence of expressions, each optionally ended by
+	// ';'. After a syntax error, skips ahead so the next call can carry on.
+	public Expression parseNext()
+	{
+		try {
+			expression(tree);
+			Expression exp = tree.pop();
+			match(TokenType.SEMICOLON);
+			return exp;
+		}
+		catch(ParseError err) {
+			synchronize();
+			return null;
 		}
-		
-		return exp;
 	}
 	
-	private Expression comparison() {
-		Expression exp = term();
-		
-		while(match(TokenType.GREATER_THAN, TokenType.GREATER_THAN_EQUAL,  TokenType.LESS_THAN, TokenType.LESS_THAN_EQUAL)) {
-			Token op = previous();
-			Expression right = term();
-			exp = new Expression.Binary(exp, op, right);
-		}
-		return exp;
+	// At the end, consumes the EOF token, which a StreamingScanner holds any
+	// errors after the last expression back for.
+	public boolean hasNext() {
+		if (!end()) return true;
+		tokens.next();
+		return false;
 	}
 	
-	private Expression term() {
-		Expression exp = factor();
+	
+	// The precedence rules (equality < comparison < term < factor < unary)
+	// are applied with explicit operator and operand stacks rather than one
+	// recursive call per rule and per '(' or prefix operator, so nesting depth
+	// is bounded by the heap instead of the call stack. Nodes are built in
+	// the same order a recursive descent would build them, and the finished
+	// expression is left as the only node on 'operands'.
+	private void expression(NodeStack operands) {
+		// A syntax error can leave entries behind from the last expression.
+		Arrays.fill(operators, 0, operatorCount, null);
+		operatorCount = 0;
+		operands.clear();
 		
-		while(match(TokenType.MINUS, TokenType.PLUS)) {
-			Token op = previous();
-			Expression right = factor();
-			exp = new Expression.Binary(exp, op, right);
+		while(true) {
+			// Operand position: any prefix operators and '(' first.
+			while(true) {
+				if(match(UNARY)) {
+					pushOperator(previous(), PREFIX);
+				}
+				else if(match(TokenType.LEFTPAREN)) {
+					pushOperator(null, GROUP);
+				}
+				else {
+					break;
+				}
+			}
+			primary(operands);
+			
+			// Operator position: close groups until a binary operator follows.
+			while(true) {
+				int precedence = PRECEDENCE[tokens.peekType().ordinal()];
+				if(precedence != GROUP) {
+					reduce(operands, precedence);
+					advance();
+					pushOperator(previous(), precedence);
+					break;
+				}
+				
+				reduce(operands, GROUP + 1);
+				if(operatorCount == 0) {
+					return;
+				}
+				consume(TokenType.RIGHTPAREN, "Expect ')' after expression");
+				operators[--operatorCount] = null;
+				operands.grouping();
+			}
 		}
-		return exp;
 	}
 	
-	private Expression factor() {
-		Expression exp  = unary();
-		
-		while (match(TokenType.MOD, TokenType.SLASH, TokenType.STAR)) {
-			Token op = previous();
-			Expression right = unary();
-			exp = new Expression.Binary(exp, op, right);
+	// Builds nodes for the stacked operators that bind at least as tightly
+	// as 'precedence', which makes the binary operators left-associative.
+	private void reduce(NodeStack operands, int precedence) {
+		while(operatorCount > 0 && precedences[operatorCount - 1] >= precedence) {
+			operatorCount--;
+			Token op = operators[operatorCount];
+			operators[operatorCount] = null;
+			if(precedences[operatorCount] == PREFIX) {
+				operands.unary(op);
+			}
+			else {
+				operands.binary(op);
+			}
 		}
-		return exp;
 	}
 	
-	private Expression unary() {
-		if(match(TokenType.NOT, TokenType.MINUS)) {
-			Token op = previous();
-			Expression right = unary();
-			return new Expression.Unary(op, right);
-		}
-		return primary();
+	private void primary(NodeStack operands) {
+		if(match(TokenType.TRUE)) operands.literal(true);
+		else if(match(TokenType.FALSE)) operands.literal(false);
+		else if(match(TokenType.NIL)) operands.literal(null);
+		else if (match(LITERAL)) operands.literal(tokens.previousLiteral());
+		else throw error(peek(), "Expect expression.");
 	}
-
-	private Expression primary() {
-		if(match(TokenType.TRUE)) return new Expression.Literal(true);
-		if(match(TokenType.FALSE)) return new Expression.Literal(false);
-		if(match(TokenType.NIL)) return new Expression.Literal(null);
-		
-		if (match(TokenType.NUMBER, TokenType.STRING)) {
-			return new Expression.Literal(previous().GetLiteral());
-		}
-		
-		if(match(TokenType.LEFTPAREN)) {
-			Expression exp = expression();
-			consume(TokenType.RIGHTPAREN, "Expect ')' after expression");
-			return new Expression.Grouping(exp);
+	
+	private void pushOperator(Token op, int precedence) {
+		if(operatorCount == operators.length) {
+			operators = Arrays.copyOf(operators, operatorCount * 2);
+			precedences = Arrays.copyOf(precedences, operatorCount * 2);
 		}
-		
-		throw error(peek(), "Expect expression.");
-		
+		operators[operatorCount] = op;
+		precedences[operatorCount] = (byte) precedence;
+		operatorCount++;
 	}
 	
-	private Token consume(TokenType type, String errmsg) {
-		if(check(type)) return advance();
+	private void consume(TokenType type, String errmsg) {
+		if(check(type)) {
+			advance();
+			return;
+		}
 		
 		throw error(peek(), errmsg);
 	}
 	
 	private ParseError error(Token tok, String errmsg) {
-		jlox.error(tok, errmsg);
+		console.error(tok, errmsg);
 		return new ParseError();
 	}
 	
+	private boolean match(TokenType type) {
+		if(check(type)) {
+			advance();
+			return true;
+		}
+		return false;
+	}
+	
 	private boolean match(TokenType... types) {
 		for(TokenType t : types) {
 			if(check(t)) {
@@ -148,26 +292,25 @@ public class Parser {
 		return false;
 	}
 	
-	private Token advance() {
-		if(!end()) current++;
-		return previous();
+	private void advance() {
+		if(!end()) tokens.skip();
 	}
 	
 	private boolean check(TokenType type) {
 		if(end()) return false;
-		return peek().GetType() == type;
+		return tokens.peekType() == type;
 	}
 	
 	private boolean end() {
-		return peek().GetType() == TokenType.EOF;
+		return tokens.peekType() == TokenType.EOF;
 	}
 	
 	private Token peek() {
-		return this.tokens.get(this.current);
+		return this.tokens.peek();
 	}
 	
 	private Token previous() {
-		return this.tokens.get(this.current - 1);
+		return this.tokens.previous();
 	}
 		
 	
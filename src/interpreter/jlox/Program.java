@@ -0,0 +1,78 @@
+package interpreter.jlox;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import interpreter.jlox.Expression.Binary;
+import interpreter.jlox.Expression.Grouping;
+import interpreter.jlox.Expression.Literal;
+import interpreter.jlox.Expression.Unary;
+
+// An expression taken through the front end and ready to run: its parsed
+// tree, to print or dump, and the one form its evaluator runs. An arena
+// program is its own parsed tree and has no separate one.
+// Only its count of runs and its compiled class change once built, both
+// safely, so Sessions on any thread can share one through an ExpressionCache.
+final class Program {
+	final Expression tree;
+	final Expression expression;
+	final Chunk chunk;
+	final ExpressionArena arena;
+	// Rough retained size in bytes, for the cache's memory budget.
+	final long weight;
+	private final AtomicInteger runs = new AtomicInteger();
+	private volatile ClassCompiler.Compiled compiled;
+
+	Program(Expression tree, Expression expression, Chunk chunk, ExpressionArena arena, long weight) {
+		this.tree = tree;
+		this.expression = expression;
+		this.chunk = chunk;
+		this.arena = arena;
+		this.weight = weight;
+	}
+
+	// Cuts out the lexeme of every operator Token, so the Sessions that share
+	// the Program through an ExpressionCache only ever read them. Called
+	// before the Program is put in the cache, which publishes it.
+	void settle() {
+		ExpressionWalker<Void> walker = new ExpressionWalker<Void>() {
+			@Override
+			Void binary(Binary expression, Void left, Void right) {
+				expression.operator.GetLexeme();
+				return null;
+			}
+
+			@Override
+			Void grouping(Grouping expression, Void inner) {
+				return null;
+			}
+
+			@Override
+			Void literal(Literal expression) {
+				return null;
+			}
+
+			@Override
+			Void unary(Unary expression, Void right) {
+				expression.operator.GetLexeme();
+				return null;
+			}
+		};
+		if (tree != null) walker.walk(tree);
+		if (expression != null && expression != tree) walker.walk(expression);
+		if (chunk != null) {
+			for (Token token : chunk.tokens) if (token != null) token.GetLexeme();
+		}
+	}
+
+	// The expression as a class of its own once it has run 'threshold'
+	// times, this run included; null before then and if it cannot be
+	// compiled. Only the run that reaches the threshold compiles it.
+	ClassCompiler.Compiled compiled(int threshold) {
+		ClassCompiler.Compiled code = compiled;
+		if (code != null) return code;
+		if (runs.incrementAndGet() != threshold) return null;
+		code = new ClassCompiler().compile(expression);
+		compiled = code;
+		return code;
+	}
+}
@@ -0,0 +1,86 @@
+package interpreter.jlox;
+
+import java.util.ArrayDeque;
+
+// A string value built by '+' that has not been copied into a String yet.
+// Adding to a rope only links the two sides, so a chain of N additions takes
+// time and memory linear in N instead of recopying the whole prefix each
+// time. The characters are laid out once, by toString(), when something
+// needs the text: stringify, equal or printing.
+//
+// Every evaluator treats a Rope exactly like the String it stands for, so a
+// runtime string value is either one; isString() tests for both.
+final class Rope {
+
+	// Results this short are cheaper to copy straight away than to link.
+	private static final int SHORT = 64;
+
+	// Dropped once flattened, so a flat rope holds only its String. A
+	// folded constant can be shared across threads, so the fields are
+	// volatile: whoever finds a side gone also finds flat set.
+	private volatile Object left;
+	private volatile Object right;
+	private final long length;
+	// Set once flattened, so later uses of the same value do not redo it.
+	private volatile String flat;
+
+	private Rope(Object left, Object right, long length) {
+		this.left = left;
+		this.right = right;
+		this.length = length;
+	}
+
+	static boolean isString(Object value) {
+		return value instanceof String || value instanceof Rope;
+	}
+
+	// Both sides must satisfy isString().
+	static Object concat(Object lhs, Object rhs) {
+		long length = length(lhs) + length(rhs);
+		if (length <= SHORT) return lhs.toString() + rhs.toString();
+		return new Rope(lhs, rhs, length);
+	}
+
+	private static long length(Object value) {
+		return value instanceof String ? ((String) value).length() : ((Rope) value).length;
+	}
+
+	// Leaves are copied in from the right end backwards, with an explicit
+	// stack, so a chain of additions nested a million deep needs no deeper
+	// call stack than a short one.
+	@Override
+	public String toString() {
+		String text = flat;
+		if (text != null) return text;
+		if (length > Integer.MAX_VALUE - 8) throw new OutOfMemoryError("String too long");
+
+		char[] chars = new char[(int) length];
+		int end = chars.length;
+		ArrayDeque<Object> pending = new ArrayDeque<>();
+		pending.push(this);
+		while (!pending.isEmpty()) {
+			Object part = pending.pop();
+			if (part instanceof Rope) {
+				Rope rope = (Rope) part;
+				Object left = rope.left;
+				Object right = rope.right;
+				if (left == null || right == null) {
+					part = rope.flat;
+				}
+				else {
+					pending.push(left);
+					pending.push(right);
+					continue;
+				}
+			}
+			String leaf = (String) part;
+			end -= leaf.length();
+			leaf.getChars(0, leaf.length(), chars, end);
+		}
+		text = new String(chars);
+		flat = text;
+		left = null;
+		right = null;
+		return text;
+	}
+}
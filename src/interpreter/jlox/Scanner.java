@@ -1,44 +1,40 @@
 package interpreter.jlox;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 
 
 
 public class Scanner {
-    private final String source;
+    private final CharSequence source;
+    private final int length;
     private final List<Token> tokens = new ArrayList<>();
+    private PackedTokens packed;
     private int start = 0;
     private int current = 0;
-    private int line = 1;
-
-    private static final Map<String, TokenType> keywords;
-    static{
-        keywords = new HashMap<>();
-        keywords.put("and",    TokenType.AND);
-        keywords.put("else",   TokenType.ELSE);
-        keywords.put("false",  TokenType.FALSE);
-        keywords.put("class",  TokenType.CLASS);
-        keywords.put("for",    TokenType.FOR);
-        keywords.put("fun",    TokenType.FUN);
-        keywords.put("if",     TokenType.IF);
-        keywords.put("nil",    TokenType.NIL);
-        keywords.put("or",     TokenType.OR);
-        keywords.put("print",  TokenType.PRINT);
-        keywords.put("return", TokenType.RETURN);
-        keywords.put("super",  TokenType.SUPER);
-        keywords.put("this",   TokenType.THIS);
-        keywords.put("true",   TokenType.TRUE);
-        keywords.put("var",    TokenType.VAR);
-        keywords.put("while",  TokenType.WHILE);
-    }
+    private int line;
+    private final Console console;
+    // Bulk skipping over blanks, comments and strings; null for the plain loops.
+    private final Skipper skipper;
 
     
-    public Scanner(String src) {
+    public Scanner(CharSequence src) {
+        this(src, Console.standard(), 1);
+    }
+
+    // For a source that starts partway into a larger input, so errors and
+    // tokens carry the line numbers of the whole input.
+    Scanner(CharSequence src, Console console, int line) {
+        this(src, console, line, false);
+    }
+
+    Scanner(CharSequence src, Console console, int line, boolean bulkSkip) {
         this.source = src;
+        this.length = src.length();
+        this.console = console;
+        this.line = line;
+        this.skipper = bulkSkip ? Skipper.of(src) : null;
     }
 
     public List<Token> scanTokens() {
@@ -52,6 +48,45 @@ public class Scanner {
         return tokens;
     }
 
+    // Same scan, recorded into parallel arrays without any Token objects.
+    public PackedTokens scanPacked() {
+        packed = new PackedTokens(source);
+        while(!end())
+        {
+            start = current;
+            scanToken();
+        }
+        packed.add(TokenType.EOF, current, 0, line, null);
+        packed.trim();
+        return packed;
+    }
+
+    // One token at a time, for rescanning part of a source: the next token
+    // after position(), or null at the end. Whatever lies between is
+    // skipped as scanTokens() would skip it.
+    Token nextToken() {
+        int count = tokens.size();
+        while (!end() && tokens.size() == count) {
+            start = current;
+            scanToken();
+        }
+        return tokens.size() == count ? null : tokens.remove(count);
+    }
+
+    // Where nextToken() carries on from. Must be where a token, or the gap
+    // before one, begins; the line is the one given to the constructor.
+    void seek(int position) {
+        this.current = position;
+    }
+
+    int position() {
+        return this.current;
+    }
+
+    int line() {
+        return this.line;
+    }
+
     private char advance() {
         return this.source.charAt(this.current++);
     }
@@ -60,73 +95,85 @@ public class Scanner {
     	addToken(type, null);
     }
     
+    // Fixed-spelling tokens share their type's lexeme; the rest keep a slice of
+    // the source that is only copied out if someone asks for it.
     private void addToken(TokenType type, Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        if (packed != null) {
+            packed.add(type, start, current - start, line, literal);
+        }
+        else if (type.spelling != null) {
+            tokens.add(new Token(type, type.spelling, literal, line));
+        }
+        else {
+            tokens.add(new Token(type, source, start, current - start, literal, line));
+        }
       }
 
+    private String text(int from, int to) {
+        return source.subSequence(from, to).toString();
+    }
+
+    // Dispatches on the character's class from Lexicon, so each character
+    // costs one table load rather than a walk through every case.
     private void scanToken(){
         char cur = advance();
-        switch (cur){
-            case '(': addToken(TokenType.LEFTPAREN); break;
-            case ')': addToken(TokenType.RIGHTPAREN); break;
-            case '{': addToken(TokenType.LEFTBRACE); break;
-            case '}': addToken(TokenType.RIGHTBRACE); break;
-            case ',': addToken(TokenType.COMMA); break;
-            case '.': addToken(TokenType.DOT); break;
-            case '-': addToken(TokenType.MINUS); break;
-            case '+': addToken(TokenType.PLUS); break;
-            case '*': addToken(TokenType.STAR); break;
-            case '%': addToken(TokenType.MOD); break;
-            case ';': addToken(TokenType.SEMICOLON); break;
-            case '!':
-                addToken(match('=') ? TokenType.NOT_EQUAL : TokenType.NOT);
-                break;
-            case '=':
-                addToken(match('=') ? TokenType.EQUAL_EQUAL : TokenType.EQUAL);
+        switch (Lexicon.classOf(cur)){
+            case Lexicon.SPACE:
+            case Lexicon.NEWLINE:
+                skipWhitespace();
                 break;
-            case '<':
-                addToken(match('=') ? TokenType.LESS_THAN_EQUAL : TokenType.LESS_THAN);
+            case Lexicon.DIGIT: number(); break;
+            case Lexicon.ALPHA: identifier(); break;
+            case Lexicon.SINGLE: addToken(Lexicon.alone(cur)); break;
+            case Lexicon.EQUALS_PAIR:
+                addToken(match('=') ? Lexicon.withEqual(cur) : Lexicon.alone(cur));
                 break;
-            case '>':
-                addToken(match('=') ? TokenType.GREATER_THAN_EQUAL : TokenType.GREATER_THAN);
-                break;
-            case '/':
+            case Lexicon.SLASH:
                 if(match('/')){
-                    while (peek() != '\n' && !end()) advance();
+                    if (skipper != null) this.current = skipper.skipComment(this.current);
+                    else while (peek() != '\n' && !end()) advance();
                 }
                 else addToken(TokenType.SLASH);
                 break;
-
-            case ' ':
-            case '\r':
-            case '\t':
-                // Ignore whitespace.
-                break;
-            case '\n':
-                this.line++;
-                break;
-            case '"': string(); break;
+            case Lexicon.QUOTE: string(); break;
             default:
-                if(isDigit(cur)) number();
-                else if (isAlpha(cur)) identifier();
-                else jlox.error(line, "Unexpected character: " + cur + "."); 
+                unexpected(cur);
                 break;
         }
     }
 
-    private boolean isDigit(char c){
-        return c >= '0' && c <= '9';
+    // One error per code point, whether it is a UTF-8 sequence of a mapped
+    // file or a surrogate pair of a String.
+    private void unexpected(char cur) {
+        if (this.source instanceof MappedSource) {
+            this.current = ((MappedSource) this.source).characterEnd(this.start);
+        }
+        else if (Character.isHighSurrogate(cur) && Character.isLowSurrogate(peek())) {
+            this.current++;
+        }
+        console.error(line, "Unexpected character: " + text(this.start, this.current) + ".");
     }
 
-    private boolean isAlpha(char c){
-        return (c >= 'a' && c <= 'z') ||
-               (c >= 'A' && c <= 'Z') ||
-                c == '_';
+    // Consumes a whole run of blanks and newlines, starting with the one
+    // just read, in one loop instead of one trip through scanToken per
+    // character.
+    private void skipWhitespace() {
+        if (skipper != null) {
+            this.current = skipper.skipBlanks(this.start);
+            this.line += skipper.newlines;
+            return;
+        }
+        this.current = this.start;
+        while (this.current < this.length) {
+            byte kind = Lexicon.classOf(this.source.charAt(this.current));
+            if (kind == Lexicon.NEWLINE) this.line++;
+            else if (kind != Lexicon.SPACE) return;
+            this.current++;
+        }
     }
 
-    private boolean isAlphaNumeric(char c){
-        return isDigit(c) || isAlpha(c);
+    private boolean isDigit(char c){
+        return c >= '0' && c <= '9';
     }
 
     private void number() {
@@ -141,31 +188,34 @@ public class Scanner {
             }
         }
 
-        addToken(TokenType.NUMBER,
-         Double.parseDouble(this.source.substring(this.start, this.current)));
+        // Token parses the value when the literal is first read.
+        addToken(TokenType.NUMBER);
     }
 
     private void string() {
-        while(peek() != '"' && !end()){
-            if(peek() == '\n') this.line++;
-            advance();
+        if (skipper != null) {
+            this.current = skipper.skipString(this.current);
+            this.line += skipper.newlines;
+        }
+        else {
+            while(peek() != '"' && !end()){
+                if(peek() == '\n') this.line++;
+                advance();
+            }
         }
         if(end()){
-            jlox.error(this.line, "Unterminated string.");
+            console.error(this.line, "Unterminated string.");
             return;
         }
         advance();
-        String value = this.source.substring(this.start + 1, this.current - 1);
+        String value = text(this.start + 1, this.current - 1);
         addToken(TokenType.STRING, value);
     }
 
     private void identifier(){
-        while (isAlphaNumeric(peek())) advance();
+        while (Lexicon.isIdentifierPart(peek())) advance();
 
-        String text = this.source.substring(this.start, this.current);
-        TokenType type = keywords.get(text);
-        if(type == null) type = TokenType.IDENTIFIER;
-        addToken(type);
+        addToken(Lexicon.keyword(this.source, this.start, this.current - this.start));
     }
 
     private char peek()
@@ -176,7 +226,7 @@ public class Scanner {
 
     private char peekNext()
     {
-        return this.current + 1 >= this.source.length() ? '\0' : this.source.charAt(this.current + 1);
+        return this.current + 1 >= this.length ? '\0' : this.source.charAt(this.current + 1);
     }
 
     private boolean match(char expected) {
@@ -189,6 +239,6 @@ public class Scanner {
     }
 
     private boolean end() {
-        return this.current >= this.source.length();
+        return this.current >= this.length;
     }
 }
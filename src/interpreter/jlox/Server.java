@@ -0,0 +1,195 @@
+package interpreter.jlox;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Evaluates expressions sent as length-prefixed frames, so one JVM can serve
+// any number of evaluations.
+//
+// Request:  a big-endian u32 length, then that many bytes of UTF-8 source.
+// Response: a big-endian u32 length, then a status byte and UTF-8 text:
+//   OK             the printed value
+//   SYNTAX_ERROR   the "[line N] Error ..." lines
+//   RUNTIME_ERROR  the message followed by "[line N]"
+//   FAILURE        anything else the evaluation threw
+//
+// Requests may be pipelined. Each connection has a reader that hands frames
+// to a shared pool of workers, and a writer that answers them in the order
+// they arrived. At most MAX_IN_FLIGHT requests per connection are queued
+// before the reader stops taking more.
+public class Server {
+
+	static final byte OK = 0;
+	static final byte SYNTAX_ERROR = 1;
+	static final byte RUNTIME_ERROR = 2;
+	static final byte FAILURE = 3;
+
+	static final int MAX_FRAME = 16 << 20;
+	static final int MAX_IN_FLIGHT = 1024;
+
+	// Queued after a connection's last request to stop its writer.
+	private static final Future<byte[]> END = CompletableFuture.completedFuture(null);
+
+	private final Engine engine;
+	private final ExecutorService workers;
+
+	public Server(Engine engine, int threads) {
+		this.engine = engine;
+		this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "jlox-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// Accepts connections on the loopback interface until the process ends.
+	public void listen(int port) throws IOException {
+		try (ServerSocket listener = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			System.err.println("jlox serving on " + listener.getLocalSocketAddress());
+			while (true) {
+				Socket socket = listener.accept();
+				socket.setTcpNoDelay(true);
+				Thread connection = new Thread(() -> {
+					try (socket) {
+						serve(socket.getInputStream(), socket.getOutputStream());
+					}
+					catch (IOException e) {
+						// The client went away; nothing is left to answer.
+					}
+				}, "jlox-connection");
+				connection.setDaemon(true);
+				connection.start();
+			}
+		}
+	}
+
+	// Serves one connection, such as stdin and stdout, until its input ends,
+	// and returns once every request read has been answered.
+	public void serve(InputStream in, OutputStream out) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+		BlockingQueue<Future<byte[]>> pending = new ArrayBlockingQueue<>(MAX_IN_FLIGHT);
+		Thread writer = new Thread(() -> write(pending, output), "jlox-writer");
+		writer.start();
+
+		try {
+			while (true) {
+				int length;
+				try {
+					length = input.readInt();
+				}
+				catch (EOFException e) {
+					break;
+				}
+				if (length < 0 || length > MAX_FRAME) {
+					throw new IOException("Bad frame length " + length);
+				}
+				byte[] request = new byte[length];
+				input.readFully(request);
+				pending.put(workers.submit(() -> evaluate(request)));
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			try {
+				pending.put(END);
+				writer.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// Writes responses in request order, flushing whenever it has caught up
+	// so that a pipelined burst goes out in as few writes as possible. Once
+	// the output fails it keeps draining, so the reader never blocks on a
+	// full queue.
+	private static void write(BlockingQueue<Future<byte[]>> pending, DataOutputStream output) {
+		boolean broken = false;
+		try {
+			while (true) {
+				Future<byte[]> next = pending.take();
+				if (next == END) break;
+				byte[] response = result(next);
+				if (broken) continue;
+				try {
+					output.writeInt(response.length);
+					output.write(response);
+					if (pending.isEmpty()) output.flush();
+				}
+				catch (IOException e) {
+					broken = true;
+				}
+			}
+			if (!broken) output.flush();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (IOException e) {
+			// Nothing more can be sent.
+		}
+	}
+
+	private static byte[] result(Future<byte[]> future) throws InterruptedException {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			return response(FAILURE, String.valueOf(e.getCause()));
+		}
+	}
+
+	byte[] evaluate(byte[] request) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		Session session = engine.newSession(new PrintStream(out, false, StandardCharsets.UTF_8),
+				new PrintStream(err, false, StandardCharsets.UTF_8));
+		// An OK response is the value alone, whatever the Engine prints.
+		session.printTrees(false);
+		try {
+			session.run(new String(request, StandardCharsets.UTF_8));
+		}
+		catch (RuntimeException e) {
+			return response(FAILURE, e.toString());
+		}
+		if (session.hadError()) return response(SYNTAX_ERROR, text(out));
+		if (session.hadRuntimeError()) return response(RUNTIME_ERROR, text(err));
+		return response(OK, text(out));
+	}
+
+	private static String text(ByteArrayOutputStream buffer) {
+		String text = new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+		return text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
+	}
+
+	private static byte[] response(byte status, String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		byte[] response = new byte[bytes.length + 1];
+		response[0] = status;
+		System.arraycopy(bytes, 0, response, 1, bytes.length);
+		return response;
+	}
+}
@@ -0,0 +1,395 @@
+package interpreter.jlox;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// One caller's view of an Engine: its own Console, for output and errors,
+// and its own Interpreter. Sessions share nothing with each other, so many
+// can run at once. A single Session runs one thing at a time; its methods
+// are synchronized, so sharing one between threads is safe but serial.
+public class Session {
+
+	private final Engine engine;
+	final Console console;
+	private final Interpreter interpreter;
+	// The Engine's, or null when metrics are off.
+	private final Metrics metrics;
+	private final ASTPrinter printer = new ASTPrinter();
+	// Whether each run prints its tree first; the Engine's choice to begin with.
+	private boolean printTree;
+	// Where each run's tree is also written in binary, if anywhere.
+	private ASTDump.Writer dump;
+
+	Session(Engine engine, Console console) {
+		this.engine = engine;
+		this.console = console;
+		this.interpreter = new Interpreter(console);
+		interpreter.unboxed = engine.unboxed;
+		interpreter.reportAllocation = engine.reportAllocation;
+		interpreter.memoize = engine.memoize;
+		interpreter.reportMemo = engine.reportMemo;
+		this.printTree = engine.printTree;
+		this.metrics = engine.metrics;
+		if (metrics != null) {
+			console.metrics = metrics;
+			interpreter.countOperators(new long[TokenType.values().length]);
+		}
+	}
+
+	public synchronized boolean hadError() {
+		return console.hadError;
+	}
+
+	public synchronized boolean hadRuntimeError() {
+		return console.hadRuntimeError;
+	}
+
+	public synchronized void clearErrors() {
+		console.hadError = false;
+		console.hadRuntimeError = false;
+	}
+
+	// Turns printing each tree before its value on or off for later runs.
+	public synchronized void printTrees(boolean print) {
+		printTree = print;
+	}
+
+	// Writes the tree of every later run that parses to 'out' in ASTDump's
+	// form, starting with its header. The caller flushes and closes 'out'.
+	public synchronized void dumpTrees(DataOutput out) throws IOException {
+		dump = new ASTDump.Writer(out);
+	}
+
+	public synchronized void runFile(Path path) throws IOException {
+		if (engine.stream) {
+			try (FileChannel channel = FileChannel.open(path)) {
+				runStream(channel);
+			}
+		}
+		else if (engine.treeCache) {
+			runCached(path);
+		}
+		else if (engine.mmap) {
+			// Scans the script straight out of the page cache instead of
+			// copying it into a byte[] and then a String.
+			try (FileChannel channel = FileChannel.open(path)) {
+				MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				run(new MappedSource(bytes));
+			}
+		}
+		else {
+			byte[] bytes = Files.readAllBytes(path);
+			run(new String(bytes, Charset.defaultCharset()));
+		}
+	}
+
+	// Runs the tree cached beside the script when it is for this text, and
+	// otherwise scans and parses the script and caches its tree for next time.
+	private void runCached(Path path) throws IOException {
+		byte[] bytes = Files.readAllBytes(path);
+		Charset charset = Charset.defaultCharset();
+		TreeCache cache = new TreeCache(path, bytes, charset);
+		long started = metrics != null ? metrics.start() : 0;
+		Program program = load(cache);
+		if (program != null) {
+			if (metrics != null) metrics.end(Metrics.Phase.PARSE, started);
+		}
+		else {
+			program = compile(new String(bytes, charset), 1);
+			// Only a script that parsed without errors is cached, so running
+			// from the cache never skips a diagnostic.
+			if (program != null) cache.store(program.tree != null ? program.tree : program.arena.toExpression());
+		}
+		if (program != null) execute(program);
+	}
+
+	private Program load(TreeCache cache) {
+		if (engine.arena) {
+			ExpressionArena arena = new ExpressionArena();
+			NodeStack.Arena nodes = new NodeStack.Arena(arena);
+			if (!cache.load(nodes)) return null;
+			arena.root = nodes.pop();
+			arena.trim();
+			return new Program(null, null, null, arena, 0);
+		}
+		ExpressionInterner interner = interner();
+		Expression tree = cache.load(interner != null ? interner : Parser.TREE);
+		return tree != null ? compile(tree, interner, 0) : null;
+	}
+
+	// Evaluates the input as a sequence of expressions, scanning and parsing
+	// each one only when the previous one is done. With a cache, each is still
+	// parsed, to find where it ends, but then run as the cached Program for
+	// its text, so only the first copy of an expression is compiled.
+	public synchronized void runStream(ReadableByteChannel channel) {
+		ExpressionCache cache = dump == null ? engine.cache : null;
+		StreamingScanner scanner = new StreamingScanner(channel, console);
+		Consumed consumed = cache != null ? new Consumed(scanner) : null;
+		Parser parser = new Parser(consumed != null ? consumed : scanner, console);
+		boolean failed = false;
+		while (true) {
+			console.hadError = false;
+			if (!parser.hasNext()) break;
+			if (consumed != null) consumed.clear();
+			// A fresh interner per expression keeps memory bounded by the
+			// largest one rather than the whole stream.
+			ExpressionInterner interner = interner();
+			if (interner != null) parser.intern(interner);
+			// Scanning happens inside parsing here, so both count as parse.
+			long started = metrics != null ? metrics.start() : 0;
+			Expression expression = parser.parseNext();
+			if (metrics != null) {
+				metrics.end(Metrics.Phase.PARSE, started);
+				if (expression != null) metrics.nodes(Metrics.count(expression));
+			}
+			if (!console.hadError) {
+				if (consumed != null) run(consumed.source(), consumed.line(), cache);
+				else execute(compile(expression, interner, 0));
+			}
+			failed |= console.hadError;
+		}
+		console.hadError |= failed;
+	}
+
+	public synchronized void run(CharSequence src) {
+		run(src, 1);
+	}
+
+	// For a source that starts on the given line of some larger input.
+	// With a cache, a source already compiled skips straight to running.
+	public synchronized void run(CharSequence src, int line) {
+		ExpressionCache cache = engine.cache;
+		// A dumped tree carries its line numbers, so is compiled where it is.
+		if (cache == null || dump != null || !(src instanceof String)) {
+			Program program = compile(src, line);
+			if (program != null) execute(program);
+			return;
+		}
+		run((String) src, line, cache);
+	}
+
+	// The cache is keyed on text alone, so a Program is compiled as if its
+	// source started on line 1, and the Console moves what it reports down
+	// to where this run starts.
+	private void run(String source, int line, ExpressionCache cache) {
+		console.lineOffset = line - 1;
+		try {
+			Program program = cache.get(source);
+			if (program == null) {
+				program = compile(source, 1);
+				if (program == null) {
+					cache.reject();
+					return;
+				}
+				program.settle();
+				cache.put(source, program);
+			}
+			execute(program);
+		}
+		finally {
+			console.lineOffset = 0;
+		}
+	}
+
+	// Returns null, with the errors reported, if the source does not parse.
+	private Program compile(CharSequence src, int line) {
+		boolean failed = console.hadError;
+		console.hadError = false;
+		try {
+			long started = metrics != null ? metrics.start() : 0;
+			Scanner sc = new Scanner(src, console, line, engine.bulkSkip);
+			Parser parser;
+			int tokens;
+			if (engine.packed) {
+				PackedTokens packed = sc.scanPacked();
+				tokens = packed.size();
+				parser = new Parser(packed, console);
+			}
+			else {
+				List<Token> scanned = sc.scanTokens();
+				tokens = scanned.size();
+				parser =  new Parser(scanned, console);
+			}
+			if (metrics != null) {
+				metrics.end(Metrics.Phase.SCAN, started);
+				metrics.tokens(tokens);
+				started = metrics.start();
+			}
+			if (engine.arena) {
+				ExpressionArena nodes = parser.parseArena();
+				if (metrics != null) {
+					metrics.end(Metrics.Phase.PARSE, started);
+					if (nodes != null) metrics.nodes(nodes.count);
+				}
+				if(console.hadError) return null;
+				return new Program(null, null, null, nodes, weight(src, tokens));
+			}
+			ExpressionInterner interner = interner();
+			if (interner != null) parser.intern(interner);
+			Expression expression = parser.parse();
+			if (metrics != null) {
+				metrics.end(Metrics.Phase.PARSE, started);
+				if (expression != null) metrics.nodes(Metrics.count(expression));
+			}
+			if(console.hadError) return null;
+			return compile(expression, interner, weight(src, tokens));
+		}
+		finally {
+			console.hadError |= failed;
+		}
+	}
+
+	private Program compile(Expression expression, ExpressionInterner interner, long weight) {
+		long started = metrics != null ? metrics.start() : 0;
+		Expression tree = expression;
+		if (engine.optimize) {
+			expression = (interner != null ? new Optimizer(interner) : new Optimizer()).optimize(expression);
+		}
+		if (interner != null && engine.reportMemo) {
+			console.err.printf("[intern] %d nodes, %d distinct (%.2f to 1)%n", interner.requests(),
+					interner.distinct(), interner.requests() / (double) Math.max(1, interner.distinct()));
+		}
+		Chunk chunk = engine.useVM ? new BytecodeCompiler().compile(expression) : null;
+		if (metrics != null && (engine.optimize || chunk != null)) metrics.end(Metrics.Phase.COMPILE, started);
+		if (chunk != null) {
+			return new Program(tree, null, chunk, null, weight);
+		}
+		return new Program(tree, expression, null, null, weight);
+	}
+
+	// Only the memoizing tree walker gains from shared nodes.
+	private ExpressionInterner interner() {
+		return engine.memoize && !engine.useVM && !engine.arena ? new ExpressionInterner() : null;
+	}
+
+	// Source text plus a generous per-token allowance for nodes, both the
+	// parsed and the compiled form, Tokens and literal values.
+	private static long weight(CharSequence src, int tokens) {
+		return 64 + 2L * src.length() + 64L * tokens;
+	}
+
+	private void execute(Program program) {
+		if (metrics != null) {
+			execute(program, metrics);
+			return;
+		}
+		if (printTree || dump != null) output(program);
+		evaluate(program);
+	}
+
+	// Printing and dumping the tree count as print, the rest as execute.
+	private void execute(Program program, Metrics metrics) {
+		long started;
+		if (printTree || dump != null) {
+			started = metrics.start();
+			output(program);
+			metrics.end(Metrics.Phase.PRINT, started);
+		}
+		started = metrics.start();
+		evaluate(program);
+		metrics.end(Metrics.Phase.EXECUTE, started);
+		metrics.evaluation();
+		metrics.operators(interpreter.operatorCounts());
+	}
+
+	// The tree is printed straight to out, never built up as a String.
+	private void output(Program program) {
+		Expression tree = program.tree != null ? program.tree : program.arena.toExpression();
+		try {
+			if (printTree) {
+				printer.print(tree, console.out);
+				console.out.println();
+			}
+			if (dump != null) dump.write(tree);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void evaluate(Program program) {
+		if (program.chunk != null) {
+			new VM(console).interpret(program.chunk);
+		}
+		else if (program.arena != null) {
+			new ArenaEvaluator(console).interpret(program.arena);
+		}
+		else {
+			ClassCompiler.Compiled code = engine.compileAfter > 0 ? program.compiled(engine.compileAfter) : null;
+			interpreter.interpret(program.expression, code);
+		}
+	}
+
+	// The tokens a Parser takes from a stream, kept to look the expression
+	// they make up in the cache by.
+	private static final class Consumed implements TokenSource {
+		private final TokenSource source;
+		private final List<Token> tokens = new ArrayList<>();
+
+		Consumed(TokenSource source) {
+			this.source = source;
+		}
+
+		@Override
+		public Token next() {
+			Token token = source.next();
+			if (token.GetType() != TokenType.EOF) tokens.add(token);
+			return token;
+		}
+
+		@Override
+		public Token peek() {
+			return source.peek();
+		}
+
+		@Override
+		public Token previous() {
+			return source.previous();
+		}
+
+		void clear() {
+			tokens.clear();
+		}
+
+		// The line the first token starts on.
+		int line() {
+			return start(tokens.get(0));
+		}
+
+		// A source that scans to the same tokens on the same lines, counted
+		// from the first: each is separated from the one before by a space,
+		// or by as many newlines as were between them. Comments and other
+		// spacing are left out, so copies spaced differently share an entry.
+		String source() {
+			StringBuilder text = new StringBuilder();
+			int line = line();
+			for (Token token : tokens) {
+				int start = start(token);
+				if (text.length() > 0) text.append(start > line ? "\n".repeat(start - line) : " ");
+				text.append(token.GetLexeme());
+				line = token.GetLine();
+			}
+			return text.toString();
+		}
+
+		// A Token has the line it ends on, which is later than the one it
+		// starts on for a string holding newlines.
+		private static int start(Token token) {
+			String lexeme = token.GetLexeme();
+			int line = token.GetLine();
+			for (int i = 0; i < lexeme.length(); i++) {
+				if (lexeme.charAt(i) == '\n') line--;
+			}
+			return line;
+		}
+	}
+}
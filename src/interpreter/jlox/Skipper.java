@@ -0,0 +1,186 @@
+package interpreter.jlox;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Bulk versions of the Scanner's three skip loops: over blanks, to the end
+// of a '//' comment and to the end of a string literal. Each returns where
+// the skip stops and leaves in 'newlines' how many '\n' it passed, so the
+// Scanner keeps its line count without looking at every character itself.
+//
+// Java 15, which this project targets, has no Vector API, so instead of
+// SIMD registers each kind of source uses the widest primitive it has:
+// bytes are tested eight at a time packed in a long, and Strings lean on
+// String.indexOf, which the JIT compiles to vector instructions.
+abstract class Skipper {
+
+    int newlines;
+
+    // The first index at or after 'from' that is not ' ', '\t', '\r' or
+    // '\n', or the length of the source.
+    abstract int skipBlanks(int from);
+
+    // The index of the next '\n' at or after 'from', or the length. The
+    // newline itself is left for the Scanner.
+    abstract int skipComment(int from);
+
+    // The index of the next '"' at or after 'from', or the length.
+    abstract int skipString(int from);
+
+    // Null when the source has no faster path than the Scanner's own loops.
+    static Skipper of(CharSequence source) {
+        if (source instanceof String) return new StringSkipper((String) source);
+        if (source instanceof MappedSource) return new ByteSkipper(((MappedSource) source).bytes());
+        return null;
+    }
+
+    private static final class StringSkipper extends Skipper {
+        private final String source;
+        private final int length;
+        // The first '\n' at or after the last position asked about. The
+        // Scanner only moves forward, so every newline is searched for once
+        // however many strings and comments share a line.
+        private int nextNewline = -1;
+
+        StringSkipper(String source) {
+            this.source = source;
+            this.length = source.length();
+        }
+
+        @Override
+        int skipBlanks(int from) {
+            int count = 0;
+            int i = from;
+            while (i < length) {
+                byte kind = Lexicon.classOf(source.charAt(i));
+                if (kind == Lexicon.NEWLINE) count++;
+                else if (kind != Lexicon.SPACE) break;
+                i++;
+            }
+            newlines = count;
+            return i;
+        }
+
+        @Override
+        int skipComment(int from) {
+            newlines = 0;
+            return newlineFrom(from);
+        }
+
+        @Override
+        int skipString(int from) {
+            int quote = source.indexOf('"', from);
+            int end = quote < 0 ? length : quote;
+            int count = 0;
+            for (int n = newlineFrom(from); n < end; n = newlineFrom(n + 1)) count++;
+            newlines = count;
+            return end;
+        }
+
+        private int newlineFrom(int from) {
+            if (nextNewline < from) {
+                int found = source.indexOf('\n', from);
+                nextNewline = found < 0 ? length : found;
+            }
+            return nextNewline;
+        }
+    }
+
+    // SWAR: each byte of a little-endian long is compared with the targets
+    // at once, leaving its high bit set where it matched, so the lowest set
+    // bit gives the first match and a bit count gives the newlines.
+    private static final class ByteSkipper extends Skipper {
+        private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+        private static final long HIGHS = 0x8080808080808080L;
+        private static final long SPACE = repeat(' ');
+        private static final long TAB = repeat('\t');
+        private static final long CR = repeat('\r');
+        private static final long NEWLINE = repeat('\n');
+        private static final long QUOTE = repeat('"');
+
+        private final ByteBuffer bytes;
+        private final int length;
+
+        ByteSkipper(ByteBuffer bytes) {
+            this.bytes = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            this.length = bytes.limit();
+        }
+
+        @Override
+        int skipBlanks(int from) {
+            int count = 0;
+            int i = from;
+            for (; i + 8 <= length; i += 8) {
+                long word = bytes.getLong(i);
+                long newline = matches(word, NEWLINE);
+                long blank = newline | matches(word, SPACE) | matches(word, TAB) | matches(word, CR);
+                long other = ~blank & HIGHS;
+                if (other != 0) {
+                    int offset = Long.numberOfTrailingZeros(other) >>> 3;
+                    newlines = count + Long.bitCount(newline & below(offset));
+                    return i + offset;
+                }
+                count += Long.bitCount(newline);
+            }
+            for (; i < length; i++) {
+                byte b = bytes.get(i);
+                if (b == '\n') count++;
+                else if (b != ' ' && b != '\t' && b != '\r') break;
+            }
+            newlines = count;
+            return i;
+        }
+
+        @Override
+        int skipComment(int from) {
+            newlines = 0;
+            int i = from;
+            for (; i + 8 <= length; i += 8) {
+                long stop = matches(bytes.getLong(i), NEWLINE);
+                if (stop != 0) return i + (Long.numberOfTrailingZeros(stop) >>> 3);
+            }
+            while (i < length && bytes.get(i) != '\n') i++;
+            return i;
+        }
+
+        @Override
+        int skipString(int from) {
+            int count = 0;
+            int i = from;
+            for (; i + 8 <= length; i += 8) {
+                long word = bytes.getLong(i);
+                long newline = matches(word, NEWLINE);
+                long stop = matches(word, QUOTE);
+                if (stop != 0) {
+                    int offset = Long.numberOfTrailingZeros(stop) >>> 3;
+                    newlines = count + Long.bitCount(newline & below(offset));
+                    return i + offset;
+                }
+                count += Long.bitCount(newline);
+            }
+            for (; i < length; i++) {
+                byte b = bytes.get(i);
+                if (b == '"') break;
+                if (b == '\n') count++;
+            }
+            newlines = count;
+            return i;
+        }
+
+        private static long repeat(char c) {
+            return (c & 0xFFL) * 0x0101010101010101L;
+        }
+
+        // The high bit of each byte of 'word' that equals the matching byte
+        // of 'pattern', and nothing else. Exact: no borrow crosses bytes.
+        private static long matches(long word, long pattern) {
+            long x = word ^ pattern;
+            return ~(((x & LOWS) + LOWS) | x | LOWS);
+        }
+
+        // The bits of the bytes before byte 'offset'.
+        private static long below(int offset) {
+            return (1L << (offset << 3)) - 1;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package interpreter.jlox;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Same lexical rules as Scanner, but reads its input through a fixed-size
+// buffer and only scans a token when the parser asks for it, so neither the
+// whole source nor the whole token list is ever held in memory.
+//
+// A scan error is held back until the token scanned after it is consumed,
+// so one found while peeking past the end of an expression is reported
+// against the expression that follows rather than the one being finished.
+public class StreamingScanner implements TokenSource {
+    private static final class HeldError {
+        final int line;
+        final String message;
+
+        HeldError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+    }
+
+    static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private boolean eof = false;
+
+    private final StringBuilder lexeme = new StringBuilder();
+    private int line = 1;
+    private final Console console;
+    private Token lookahead;
+    private Token previous;
+    private final List<HeldError> held = new ArrayList<>();
+
+    public StreamingScanner(Reader reader) {
+        this(reader, Console.standard());
+    }
+
+    public StreamingScanner(ReadableByteChannel channel) {
+        this(channel, Console.standard());
+    }
+
+    StreamingScanner(Reader reader, Console console) {
+        this.reader = reader;
+        this.console = console;
+    }
+
+    StreamingScanner(ReadableByteChannel channel, Console console) {
+        this(Channels.newReader(channel, Charset.defaultCharset().newDecoder(), BUFFER_SIZE), console);
+    }
+
+    // Reports the scan errors held back for the token, the EOF token's
+    // included.
+    @Override
+    public Token next() {
+        Token token = peek();
+        if (!held.isEmpty()) {
+            for (HeldError error : held) console.error(error.line, error.message);
+            held.clear();
+        }
+        if (token.GetType() != TokenType.EOF) {
+            lookahead = null;
+            previous = token;
+        }
+        return token;
+    }
+
+    @Override
+    public Token previous() {
+        return previous;
+    }
+
+    @Override
+    public Token peek() {
+        if (lookahead == null) lookahead = scanToken();
+        return lookahead;
+    }
+
+    private Token scanToken() {
+        while (!end()) {
+            lexeme.setLength(0);
+            Token token = scanLexeme();
+            if (token != null) return token;
+        }
+        return new Token(TokenType.EOF, "", null, line);
+    }
+
+    private Token scanLexeme() {
+        char cur = advance();
+        // Dispatches on Lexicon's character classes, as Scanner does.
+        switch (Lexicon.classOf(cur)) {
+            case Lexicon.SINGLE:
+                return token(Lexicon.alone(cur));
+            case Lexicon.EQUALS_PAIR:
+                return token(match('=') ? Lexicon.withEqual(cur) : Lexicon.alone(cur));
+            case Lexicon.SLASH:
+                if(match('/')){
+                    // Skip rather than advance so a long comment is never buffered.
+                    while (peekChar() != '\n' && !end()) position++;
+                    return null;
+                }
+                return token(TokenType.SLASH);
+            case Lexicon.SPACE:
+                // Ignore whitespace.
+                return null;
+            case Lexicon.NEWLINE:
+                this.line++;
+                return null;
+            case Lexicon.QUOTE:
+                return string();
+            case Lexicon.DIGIT:
+                return number();
+            case Lexicon.ALPHA:
+                return identifier();
+            default:
+                // A surrogate pair is one character, as Scanner reports it.
+                if (Character.isHighSurrogate(cur) && Character.isLowSurrogate(peekChar())) advance();
+                held.add(new HeldError(line, "Unexpected character: " + lexeme + "."));
+                return null;
+        }
+    }
+
+    private Token token(TokenType type) {
+        return token(type, null);
+    }
+
+    private Token token(TokenType type, Object literal) {
+        String text = type.spelling != null ? type.spelling : lexeme.toString();
+        return new Token(type, text, literal, line);
+    }
+
+    private boolean isDigit(char c){
+        return c >= '0' && c <= '9';
+    }
+
+    private Token number() {
+        while(isDigit(peekChar())){
+            advance();
+        }
+
+        if (peekChar() == '.' && isDigit(peekNextChar())){
+            advance();
+            while(isDigit(peekChar())){
+                advance();
+            }
+        }
+
+        String text = lexeme.toString();
+        return new Token(TokenType.NUMBER, text, NumberParser.parse(text), line);
+    }
+
+    private Token string() {
+        while(peekChar() != '"' && !end()){
+            if(peekChar() == '\n') this.line++;
+            advance();
+        }
+        if(end()){
+            held.add(new HeldError(this.line, "Unterminated string."));
+            return null;
+        }
+        advance();
+        String value = lexeme.substring(1, lexeme.length() - 1);
+        return token(TokenType.STRING, value);
+    }
+
+    private Token identifier(){
+        while (Lexicon.isIdentifierPart(peekChar())) advance();
+
+        // A keyword's Token shares its spelling, so only a plain identifier
+        // needs its text copied out of the lexeme.
+        return token(Lexicon.keyword(lexeme, 0, lexeme.length()));
+    }
+
+    private char advance() {
+        char c = buffer[position++];
+        lexeme.append(c);
+        return c;
+    }
+
+    private char peekChar() {
+        return fill(1) ? buffer[position] : '\0';
+    }
+
+    private char peekNextChar() {
+        return fill(2) ? buffer[position + 1] : '\0';
+    }
+
+    private boolean match(char expected) {
+        if (end() || buffer[position] != expected) return false;
+        advance();
+        return true;
+    }
+
+    private boolean end() {
+        return !fill(1);
+    }
+
+    // Makes sure at least 'needed' characters are buffered past position,
+    // unless the input runs out first.
+    private boolean fill(int needed) {
+        if (limit - position >= needed) return true;
+        if (eof) return false;
+
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        try {
+            while (limit < needed) {
+                int read = reader.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    eof = true;
+                    return false;
+                }
+                limit += read;
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+}
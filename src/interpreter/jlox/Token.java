@@ -6,6 +6,11 @@ public class Token {
     private Object literal;
     private int line;
 
+    // When lexeme is null it is still a slice of source, built on first use.
+    private CharSequence source;
+    private int start;
+    private int length;
+
     public Token(TokenType type, String lexeme, Object literal, int line) {
         this.type = type;
         this.lexeme = lexeme;
@@ -13,6 +18,15 @@ public class Token {
         this.line = line;
     }
 
+    public Token(TokenType type, CharSequence source, int start, int length, Object literal, int line) {
+        this.type = type;
+        this.source = source;
+        this.start = start;
+        this.length = length;
+        this.literal = literal;
+        this.line = line;
+    }
+
     public void SetType(TokenType newType){
         this.type = newType;
     }
@@ -31,18 +45,48 @@ public class Token {
         return this.type;
     }
 
+    // Once the lexeme is cut out, the token lets go of the source, which
+    // would otherwise stay reachable for as long as the token does. Fields
+    // are read into locals once, so a token shared between threads never
+    // sees the source cleared under it; a shared Program settles its
+    // tokens before it is published, so they only read the lexeme.
     public String GetLexeme(){
-        return this.lexeme;
+        String text = this.lexeme;
+        if (text == null) {
+            CharSequence from = this.source;
+            if (from != null) {
+                text = from.subSequence(this.start, this.start + this.length).toString();
+                this.lexeme = text;
+                this.source = null;
+            }
+        }
+        return text;
     }
     public Object GetLiteral(){
-        return this.literal;
+        // Number literals are parsed on first use, straight from the source
+        // when the lexeme has not been cut out of it. The lexeme is kept for
+        // error messages and the source released.
+        Object value = this.literal;
+        if (value == null && this.type == TokenType.NUMBER) {
+            CharSequence from = this.source;
+            if (from != null) {
+                value = NumberParser.parse(from, this.start, this.length);
+                this.literal = value;
+                GetLexeme();
+            }
+            else {
+                value = NumberParser.parse(GetLexeme());
+                this.literal = value;
+            }
+        }
+        return value;
     }
     public int GetLine(){
         return this.line;
     }
 
     public String toString(){
-        return "Token(" + type + ", " + lexeme + ", " + literal + ", " + line +  ")";
+        return "Token(" + type + ", " + GetLexeme() + ", " + GetLiteral() + ", " + line +  ")";
     }
 
 }
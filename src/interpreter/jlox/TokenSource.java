@@ -0,0 +1,30 @@
+package interpreter.jlox;
+
+// Pull-based token stream. Once the EOF token is reached, next() and peek()
+// keep returning it, and skip() does nothing.
+public interface TokenSource {
+	Token next();
+	Token peek();
+
+	// The last token consumed by next() or skip().
+	Token previous();
+
+	// Parser only needs the type of what is ahead and the literal of what it
+	// has just consumed; sources that do not hold Token objects override
+	// these to answer without building one.
+	default TokenType peekType() {
+		return peek().GetType();
+	}
+
+	default void skip() {
+		next();
+	}
+
+	default TokenType previousType() {
+		return previous().GetType();
+	}
+
+	default Object previousLiteral() {
+		return previous().GetLiteral();
+	}
+}
@@ -2,13 +2,13 @@ package interpreter.jlox;
 
 public enum TokenType {
     // SINGLE CHARACTER TOKENS
-        LEFTPAREN, RIGHTPAREN, LEFTBRACE, RIGHTBRACE, COMMA,
-        DOT, MINUS, PLUS, SEMICOLON, SLASH, STAR, MOD,
+        LEFTPAREN("("), RIGHTPAREN(")"), LEFTBRACE("{"), RIGHTBRACE("}"), COMMA(","),
+        DOT("."), MINUS("-"), PLUS("+"), SEMICOLON(";"), SLASH("/"), STAR("*"), MOD("%"),
     // SINGLE CHARACTER TOKENS
 
     // MULTIPLE CHARACTER TOKENS
-        NOT, NOT_EQUAL, EQUAL, EQUAL_EQUAL, GREATER_THAN,
-        GREATER_THAN_EQUAL, LESS_THAN, LESS_THAN_EQUAL,
+        NOT("!"), NOT_EQUAL("!="), EQUAL("="), EQUAL_EQUAL("=="), GREATER_THAN(">"),
+        GREATER_THAN_EQUAL(">="), LESS_THAN("<"), LESS_THAN_EQUAL("<="),
     // MULTIPLE CHARACTER TOKENS
 
     // LITERALS
@@ -16,11 +16,23 @@ public enum TokenType {
     // LITERALS
 
     // KEYWORDS
-        AND, CLASS, ELSE, FALSE, FUN, FOR, IF, NIL, OR,
-        PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE,
+        AND("and"), CLASS("class"), ELSE("else"), FALSE("false"), FUN("fun"), FOR("for"),
+        IF("if"), NIL("nil"), OR("or"), PRINT("print"), RETURN("return"), SUPER("super"),
+        THIS("this"), TRUE("true"), VAR("var"), WHILE("while"),
     // KEYWORDS
 
     //EOF
-        EOF
+        EOF("");
     //EOF
+
+    // The lexeme shared by every token of this type, or null when it varies.
+    final String spelling;
+
+    TokenType() {
+        this(null);
+    }
+
+    TokenType(String spelling) {
+        this.spelling = spelling;
+    }
 }
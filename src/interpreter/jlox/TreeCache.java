@@ -0,0 +1,138 @@
+package interpreter.jlox;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+// A script's parsed tree kept on disk beside it, in SUFFIX, so that running
+// the same script again maps the file and rebuilds the tree without scanning
+// or parsing. The file is keyed by a SHA-256 of the script's bytes and the
+// charset they were read in:
+//
+//   MAGIC, VERSION                    ints
+//   key                               32 bytes
+//   length and CRC-32C of the dump    ints
+//   the tree as an ASTDump
+//
+// A file for other text, of another version, cut short or damaged is
+// ignored as if it were not there, and replaced after the script parses.
+// Writing one is best effort: the new file is renamed over the old one, and
+// a directory that cannot be written to just means no cache.
+final class TreeCache {
+
+	static final String SUFFIX = ".jloxc";
+	static final int MAGIC = 0x4A4C5843; // "JLXC"
+	static final int VERSION = 1;
+
+	private static final int HEADER = 4 + 4 + 32 + 4 + 4;
+
+	private final Path file;
+	private final byte[] key;
+
+	TreeCache(Path script, byte[] source, Charset charset) {
+		this.file = script.resolveSibling(script.getFileName() + SUFFIX);
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(charset.name().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(source);
+			this.key = digest.digest();
+		}
+		catch (NoSuchAlgorithmException e) {
+			// Every Java platform has SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// The cached tree built through 'nodes', or null if there is no usable one.
+	<N> N load(Parser.Nodes<N> nodes) {
+		NodeStack.Tree<N> stack = new NodeStack.Tree<>(nodes);
+		return load(stack) ? stack.pop() : null;
+	}
+
+	// Leaves the cached tree as the only node on the empty 'stack', or
+	// returns false if there is no usable one.
+	boolean load(NodeStack stack) {
+		try (FileChannel channel = FileChannel.open(file)) {
+			long size = channel.size();
+			if (size < HEADER || size > Integer.MAX_VALUE) return false;
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (bytes.getInt() != MAGIC || bytes.getInt() != VERSION) return false;
+			byte[] stored = new byte[key.length];
+			bytes.get(stored);
+			if (!Arrays.equals(stored, key)) return false;
+			int length = bytes.getInt();
+			int checksum = bytes.getInt();
+			if (length != bytes.remaining()) return false;
+			CRC32C crc = new CRC32C();
+			crc.update(bytes.duplicate());
+			if ((int) crc.getValue() != checksum) return false;
+			ASTDump.Reader reader = new ASTDump.Reader(bytes);
+			return reader.read(stack) && !bytes.hasRemaining();
+		}
+		catch (NoSuchFileException e) {
+			return false;
+		}
+		catch (IOException | RuntimeException e) {
+			// Unreadable or not what it claims to be; parsing again is always safe.
+			return false;
+		}
+	}
+
+	void store(Expression tree) {
+		Path temporary = null;
+		try {
+			ByteArrayOutputStream dump = new ByteArrayOutputStream();
+			DataOutputStream data = new DataOutputStream(dump);
+			new ASTDump.Writer(data).write(tree);
+			data.flush();
+			CRC32C crc = new CRC32C();
+			crc.update(ByteBuffer.wrap(dump.toByteArray()));
+
+			// Named for this process and moment, so concurrent runs do not collide.
+			temporary = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + "."
+					+ System.nanoTime() + ".tmp");
+			try (OutputStream stream = new BufferedOutputStream(
+					Files.newOutputStream(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
+				DataOutputStream out = new DataOutputStream(stream);
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.write(key);
+				out.writeInt(dump.size());
+				out.writeInt((int) crc.getValue());
+				dump.writeTo(out);
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			temporary = null;
+		}
+		catch (IOException | RuntimeException e) {
+			// No cache this time.
+		}
+		finally {
+			if (temporary != null) {
+				try {
+					Files.deleteIfExists(temporary);
+				}
+				catch (IOException e) {
+					// Left behind; it is never read.
+				}
+			}
+		}
+	}
+}
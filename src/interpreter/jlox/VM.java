@@ -0,0 +1,153 @@
+package interpreter.jlox;
+
+public class VM {
+
+	private final Console console;
+
+	VM() {
+		this(Console.standard());
+	}
+
+	VM(Console console) {
+		this.console = console;
+	}
+
+	void interpret(Chunk chunk) {
+		try
+		{
+			Object value = run(chunk);
+			console.out.println(Interpreter.stringify(value));
+		}
+		catch(RuntimeError e) {
+			console.runtimeError(e);
+		}
+	}
+
+	Object run(Chunk chunk) {
+		final byte[] code = chunk.code;
+		final Object[] constants = chunk.constants;
+		final Object[] stack = new Object[Math.max(chunk.maxStack, 1)];
+		int sp = 0;
+		int ip = 0;
+
+		while (true) {
+			byte op = code[ip++];
+			switch(op) {
+			case Chunk.OP_CONSTANT: {
+				int index = ((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF);
+				ip += 2;
+				stack[sp++] = constants[index];
+				break;
+			}
+			case Chunk.OP_CONSTANT_LONG: {
+				int index = ((code[ip] & 0xFF) << 24) | ((code[ip + 1] & 0xFF) << 16)
+						| ((code[ip + 2] & 0xFF) << 8) | (code[ip + 3] & 0xFF);
+				ip += 4;
+				stack[sp++] = constants[index];
+				break;
+			}
+			case Chunk.OP_NIL: stack[sp++] = null; break;
+			case Chunk.OP_TRUE: stack[sp++] = true; break;
+			case Chunk.OP_FALSE: stack[sp++] = false; break;
+			case Chunk.OP_POP: sp--; break;
+
+			case Chunk.OP_GREATER: {
+				Object rhs = stack[--sp];
+				Object lhs = stack[sp - 1];
+				Interpreter.checkNumberOperands(chunk.tokens[ip - 1], lhs, rhs);
+				stack[sp - 1] = (double) lhs > (double) rhs;
+				break;
+			}
+			case Chunk.OP_GREATER_EQUAL: {
+				Object rhs = stack[--sp];
+				Object lhs = stack[sp - 1];
+				Interpreter.checkNumberOperands(chunk.tokens[ip - 1], lhs, rhs);
+				stack[sp - 1] = (double) lhs >= (double) rhs;
+				break;
+			}
+			case Chunk.OP_LESS: {
+				Object rhs = stack[--sp];
+				Object lhs = stack[sp - 1];
+				Interpreter.checkNumberOperands(chunk.tokens[ip - 1], lhs, rhs);
+				stack[sp - 1] = (double) lhs < (double) rhs;
+				break;
+			}
+			case Chunk.OP_LESS_EQUAL: {
+				Object rhs = stack[--sp];
+				Object lhs = stack[sp - 1];
+				Interpreter.checkNumberOperands(chunk.tokens[ip - 1], lhs, rhs);
+				stack[sp - 1] = (double) lhs <= (double) rhs;
+				break;
+			}
+			case Chunk.OP_SUBTRACT: {
+				Object rhs = stack[--sp];
+				Object lhs = stack[sp - 1];
+				Interpreter.checkNumberOperands(chunk.tokens[ip - 1], lhs, rhs);
+				stack[sp - 1] = (double) lhs - (double) rhs;
+				break;
+			}
+			case Chunk.OP_ADD: {
+				Object rhs = stack[--sp];
+				Object lhs = stack[sp - 1];
+				if (lhs instanceof Double && rhs instanceof Double) {
+					stack[sp - 1] = (double) lhs + (double) rhs;
+				}
+				else if (Rope.isString(lhs) && Rope.isString(rhs)) {
+					stack[sp - 1] = Rope.concat(lhs, rhs);
+				}
+				else {
+					throw new RuntimeError(chunk.tokens[ip - 1], "Operands must be two numbers or two strings");
+				}
+				break;
+			}
+			case Chunk.OP_DIVIDE: {
+				Object rhs = stack[--sp];
+				Object lhs = stack[sp - 1];
+				Interpreter.checkNumberOperands(chunk.tokens[ip - 1], lhs, rhs);
+				if ((double) rhs == 0) {
+					throw new RuntimeError(chunk.tokens[ip - 1], "Division by 0 error");
+				}
+				stack[sp - 1] = (double) lhs / (double) rhs;
+				break;
+			}
+			case Chunk.OP_MOD: {
+				Object rhs = stack[--sp];
+				Object lhs = stack[sp - 1];
+				Interpreter.checkNumberOperands(chunk.tokens[ip - 1], lhs, rhs);
+				if ((double) rhs == 0) {
+					throw new RuntimeError(chunk.tokens[ip - 1], "Mod by 0 error");
+				}
+				stack[sp - 1] = (double) lhs % (double) rhs;
+				break;
+			}
+			case Chunk.OP_MULTIPLY: {
+				Object rhs = stack[--sp];
+				Object lhs = stack[sp - 1];
+				stack[sp - 1] = (double) lhs * (double) rhs;
+				break;
+			}
+			case Chunk.OP_EQUAL: {
+				Object rhs = stack[--sp];
+				stack[sp - 1] = Interpreter.equal(stack[sp - 1], rhs);
+				break;
+			}
+			case Chunk.OP_NOT_EQUAL: {
+				Object rhs = stack[--sp];
+				stack[sp - 1] = !Interpreter.equal(stack[sp - 1], rhs);
+				break;
+			}
+			case Chunk.OP_NOT:
+				stack[sp - 1] = !Interpreter.truthy(stack[sp - 1]);
+				break;
+			case Chunk.OP_NEGATE:
+				Interpreter.checkNumberOperand(chunk.tokens[ip - 1], stack[sp - 1]);
+				stack[sp - 1] = -(double) stack[sp - 1];
+				break;
+			case Chunk.OP_RETURN:
+				return stack[sp - 1];
+			default:
+				throw new IllegalStateException("Unknown opcode " + op);
+			}
+		}
+	}
+}
@@ -1,87 +1,259 @@
 package interpreter.jlox;
 
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class jlox {
 
-	public static final Interpreter interpreter = new Interpreter();
-    static boolean hadError = false;
-    static boolean hadRuntimeError = false;
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
+        Engine.Options options = new Engine.Options();
+        boolean batch = false;
+        boolean serve = false;
+        boolean cacheStats = false;
+        boolean bufferOutput = false;
+        // Metrics are printed at exit, and every metricsEvery seconds if set.
+        boolean metricsJson = false;
+        int metricsEvery = 0;
+        // Each run's tree is also written here in ASTDump's binary form.
+        String dumpTrees = null;
+        int port = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String script = null;
+        for (String arg : args) {
+            if (arg.equals("--vm")) {
+                options.useVM = true;
+            }
+            else if (arg.equals("--stream")) {
+                options.stream = true;
+            }
+            else if (arg.equals("--mmap")) {
+                options.mmap = true;
+            }
+            else if (arg.equals("--packed")) {
+                options.packed = true;
+            }
+            else if (arg.equals("--bulk-skip")) {
+                options.bulkSkip = true;
+            }
+            else if (arg.equals("--arena")) {
+                options.arena = true;
+            }
+            else if (arg.equals("--batch")) {
+                batch = true;
+            }
+            else if (arg.equals("--serve")) {
+                serve = true;
+            }
+            else if (arg.startsWith("--serve=")) {
+                serve = true;
+                try {
+                    port = Integer.parseInt(arg.substring("--serve=".length()));
+                }
+                catch (NumberFormatException e) {
+                    usage();
+                }
+                if (port < 0 || port > 65535) usage();
+            }
+            else if (arg.startsWith("--threads=")) {
+                try {
+                    threads = Integer.parseInt(arg.substring("--threads=".length()));
+                }
+                catch (NumberFormatException e) {
+                    usage();
+                }
+                if (threads < 1) usage();
+            }
+            else if (arg.startsWith("--cache=")) {
+                try {
+                    options.cacheEntries = Integer.parseInt(arg.substring("--cache=".length()));
+                }
+                catch (NumberFormatException e) {
+                    usage();
+                }
+                if (options.cacheEntries < 0) usage();
+            }
+            else if (arg.equals("--cache-stats")) {
+                cacheStats = true;
+            }
+            else if (arg.equals("--no-optimize")) {
+                options.optimize = false;
+            }
+            else if (arg.equals("--boxed")) {
+                options.unboxed = false;
+            }
+            else if (arg.equals("--memoize")) {
+                options.memoize = true;
+            }
+            else if (arg.equals("--memo-stats")) {
+                options.reportMemo = true;
+            }
+            else if (arg.equals("--metrics") || arg.equals("--metrics=text")) {
+                options.metrics = true;
+            }
+            else if (arg.equals("--metrics=json")) {
+                options.metrics = true;
+                metricsJson = true;
+            }
+            else if (arg.startsWith("--metrics-every=")) {
+                try {
+                    metricsEvery = Integer.parseInt(arg.substring("--metrics-every=".length()));
+                }
+                catch (NumberFormatException e) {
+                    usage();
+                }
+                if (metricsEvery < 1) usage();
+                options.metrics = true;
+            }
+            else if (arg.startsWith("--compile-after=")) {
+                try {
+                    options.compileAfter = Integer.parseInt(arg.substring("--compile-after=".length()));
+                }
+                catch (NumberFormatException e) {
+                    usage();
+                }
+                if (options.compileAfter < 1) usage();
+            }
+            else if (arg.equals("--tree-cache")) {
+                options.treeCache = true;
+            }
+            else if (arg.equals("--buffer-output")) {
+                bufferOutput = true;
+            }
+            else if (arg.equals("--no-tree")) {
+                options.printTree = false;
+            }
+            else if (arg.startsWith("--dump-trees=")) {
+                dumpTrees = arg.substring("--dump-trees=".length());
+                if (dumpTrees.isEmpty()) usage();
+            }
+            else if (arg.equals("--alloc-stats")) {
+                options.reportAllocation = true;
+            }
+            else if (arg.startsWith("--") || script != null) {
+                usage();
+            }
+            else {
+                script = arg;
+            }
         }
-        else if (args.length == 1)
-        {
-            runFile(args[0]);
+
+        // Batch blocks and server clients run in Sessions of their own, and
+        // neither runs a script file as one tree.
+        if ((dumpTrees != null || options.treeCache) && (batch || serve)) usage();
+        // The Server leaves trees out of its responses itself.
+        if (serve && (batch || script != null)) usage();
+        Engine engine = engine(options);
+        if (cacheStats && engine.cache() != null) {
+            // Printed at exit, which for a server means when it is stopped.
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.println(engine.cache())));
+        }
+        if (engine.metrics() != null) {
+            Metrics metrics = engine.metrics();
+            boolean json = metricsJson;
+            Runnable dump = () -> System.err.println(json ? metrics.toJson() : metrics.toString());
+            Runtime.getRuntime().addShutdownHook(new Thread(dump));
+            if (metricsEvery > 0) {
+                ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "jlox-metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                timer.scheduleAtFixedRate(dump, metricsEvery, metricsEvery, TimeUnit.SECONDS);
+            }
+        }
+
+        if (serve) {
+            Server server = new Server(engine, threads);
+            if (port >= 0) {
+                server.listen(port);
+            }
+            else {
+                server.serve(System.in, System.out);
+            }
+            return;
+        }
+
+        if (batch && script == null) usage();
+        // Results and diagnostics reach stdout and stderr in large writes,
+        // still in order; whatever is left is written before exiting.
+        ChannelOutput output = bufferOutput ? ChannelOutput.standard() : null;
+        PrintStream out = output != null ? output.out() : System.out;
+        PrintStream err = output != null ? output.err() : System.err;
+        if (output != null) Runtime.getRuntime().addShutdownHook(new Thread(output::flush));
+        Session session = engine.newSession(out, err);
+        DataOutputStream dump = null;
+        if (dumpTrees != null) {
+            dump = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(dumpTrees))));
+            session.dumpTrees(dump);
         }
-        else {
-            runPrompt();
+        // Closed before an uncaught exception is printed, so it comes after
+        // the output before it.
+        try {
+            if (script != null)
+            {
+                if (batch) {
+                    byte[] bytes = Files.readAllBytes(Paths.get(script));
+                    new Batch(engine, threads).run(new String(bytes, Charset.defaultCharset()), session);
+                }
+                else {
+                    session.runFile(Paths.get(script));
+                }
+            }
+            else {
+                runPrompt(session, out);
+            }
+        }
+        finally {
+            if (dump != null) dump.close();
+            if (output != null) output.close();
+        }
+        if (script != null) {
+            if (session.hadError()) System.exit(65);
+            if (session.hadRuntimeError()) System.exit(70);
         }
     }
 
-    private static void runFile(String fpath) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(fpath));
-        run(new String(bytes, Charset.defaultCharset()));
-        if (hadError) System.exit(65);
-        if(hadRuntimeError) System.exit(70);
+    // Options that cannot go together, such as --compile-after with an
+    // evaluator it does not replace, are a usage error.
+    private static Engine engine(Engine.Options options) {
+        try {
+            return new Engine(options);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            return null;
+        }
     }
 
-    private static void runPrompt() throws IOException {
+    private static void usage() {
+        System.out.println("Usage: jlox [--vm] [--stream] [--mmap] [--packed] [--bulk-skip] [--arena] [--tree-cache] [--batch] [--serve[=port]] [--threads=N] [--cache=N] [--cache-stats] [--no-optimize] [--boxed] [--memoize] [--memo-stats] [--alloc-stats] [--compile-after=N] [--buffer-output] [--no-tree] [--dump-trees=FILE] [--metrics[=text|json]] [--metrics-every=SECONDS] [script]");
+        System.exit(64);
+    }
+
+    private static void runPrompt(Session session, PrintStream out) throws IOException {
         InputStreamReader input = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(input);
 
         while (true){
-            System.out.println("jlox > ");
+            // Through the Session's out, so buffered output comes before it.
+            out.println("jlox > ");
+            out.flush();
             String line = reader.readLine();
             if(line ==  null) break;
-            run(line);
-            hadError = false;
+            session.run(line);
+            session.clearErrors();
         }
     }
-
-    private static void run(String src){
-        Scanner sc = new Scanner(src);
-        List<Token> tokens = sc.scanTokens();
-
-        Parser parser =  new Parser(tokens);
-        Expression expression = parser.parse();
-        if(hadError) return;
-        System.out.println(new ASTPrinter().print(expression));
-        interpreter.interpret(expression);
-    }
-
-    public static void error(int ln, String msg){
-        report(ln, "", msg);
-    }
-    
-    public static void error(Token tok, String msg) {
-    	if(tok.GetType() == TokenType.EOF) {
-    		report(tok.GetLine(), " at end", msg);
-    	}
-    	else {
-    		report(tok.GetLine(), " at '" + tok.GetLexeme() + "'", msg);
-    	}
-    }
-
-    private static void report(int ln, String loc, String msg){
-        System.out.println(
-            "[line " + ln + "] Error" + loc + ": " + msg
-        );
-        hadError  = true;
-    }
-    
-    public static void runtimeError(RuntimeError error) {
-        System.err.println(error.getMessage() +
-                "\n[line " + error.token.GetLine() + "]");
-        hadRuntimeError = true;
-    }
 }
@@ -0,0 +1,180 @@
+package interpreter.tools;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Drives a "jlox --serve=PORT" server with pipelined requests and reports
+// latency percentiles. Each connection keeps up to 'depth' requests
+// outstanding; latency runs from a request leaving for the server to reading
+// its response, so time spent waiting in the send buffer is not counted.
+public class LoadGenerator {
+
+	public static void main(String[] args) throws Exception {
+		if(args.length < 1 || args.length > 4) usage();
+		int port = Integer.parseInt(args[0]);
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+		int connections = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+		if (requests <= 0 || depth <= 0 || connections <= 0) usage();
+
+		byte[][] sources = sources(256);
+		long[] latencies = new long[requests];
+		int[] statuses = new int[4];
+		Thread[] threads = new Thread[connections];
+		Exception[] failures = new Exception[connections];
+		long start = System.nanoTime();
+		for (int c = 0; c < connections; c++) {
+			int connection = c;
+			int from = (int) ((long) requests * c / connections);
+			int to = (int) ((long) requests * (c + 1) / connections);
+			threads[c] = new Thread(() -> {
+				try {
+					drive(port, sources, from, to, depth, latencies, statuses);
+				}
+				catch (IOException | InterruptedException e) {
+					failures[connection] = e;
+				}
+			});
+			threads[c].start();
+		}
+		for (Thread thread : threads) thread.join();
+		long elapsed = System.nanoTime() - start;
+		for (Exception failure : failures) {
+			if (failure != null) {
+				System.err.println("Connection failed: " + failure);
+				System.exit(1);
+			}
+		}
+
+		Arrays.sort(latencies);
+		System.out.printf("%d requests, %d connections, depth %d: %.0f req/s%n",
+				requests, connections, depth, requests / (elapsed / 1e9));
+		System.out.printf("latency us: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+				percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+				percentile(latencies, 0.999), latencies[requests - 1] / 1e3);
+		System.out.printf("ok %d  syntax errors %d  runtime errors %d  failures %d%n",
+				statuses[0], statuses[1], statuses[2], statuses[3]);
+	}
+
+	private static void usage() {
+		System.err.println("Usage: load_generator <port> [requests] [depth] [connections]");
+		System.err.println("requests, depth and connections must be positive");
+		System.exit(64);
+	}
+
+	private static void drive(int port, byte[][] sources, int from, int to, int depth,
+			long[] latencies, int[] statuses) throws IOException, InterruptedException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			OutputStream stream = socket.getOutputStream();
+			// Requests are buffered here, never in a stream that could send
+			// them on its own, so each is sent exactly when it is stamped.
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			DataOutputStream output = new DataOutputStream(buffer);
+			DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			Semaphore window = new Semaphore(depth);
+			// Written by this thread and read by the reader's.
+			AtomicLongArray sent = new AtomicLongArray(to - from);
+			IOException[] failure = new IOException[1];
+
+			Thread reader = new Thread(() -> {
+				int[] counts = new int[4];
+				try {
+					for (int i = 0; i < sent.length(); i++) {
+						byte[] response = new byte[input.readInt()];
+						input.readFully(response);
+						latencies[from + i] = System.nanoTime() - sent.get(i);
+						counts[response[0]]++;
+						window.release();
+					}
+				}
+				catch (IOException e) {
+					// No more answers are coming, so the writer must not wait
+					// for them.
+					failure[0] = e;
+					window.release(sent.length());
+					return;
+				}
+				synchronized (statuses) {
+					for (int s = 0; s < counts.length; s++) statuses[s] += counts[s];
+				}
+			});
+			reader.start();
+
+			try {
+				int unsent = 0;
+				for (int i = 0; i < sent.length(); i++) {
+					if (!window.tryAcquire()) {
+						// Everything written so far has to reach the server before
+						// waiting on its answers.
+						unsent = send(buffer, stream, sent, unsent, i);
+						window.acquire();
+					}
+					byte[] source = sources[(from + i) % sources.length];
+					output.writeInt(source.length);
+					output.write(source);
+				}
+				send(buffer, stream, sent, unsent, sent.length());
+			}
+			catch (IOException e) {
+				// Shutting the input down ends the reader too, if it is still
+				// waiting; what it ran into is kept with the writer's failure.
+				socket.shutdownInput();
+				reader.join();
+				if (failure[0] != null) e.addSuppressed(failure[0]);
+				throw e;
+			}
+			reader.join();
+			if (failure[0] != null) throw failure[0];
+		}
+	}
+
+	// Stamps requests 'from' up to 'to', which are what 'buffer' holds, with
+	// the time they are sent, and sends them. Returns the first unsent one.
+	private static int send(ByteArrayOutputStream buffer, OutputStream stream, AtomicLongArray sent, int from, int to)
+			throws IOException {
+		long now = System.nanoTime();
+		for (int i = from; i < to; i++) sent.set(i, now);
+		buffer.writeTo(stream);
+		stream.flush();
+		buffer.reset();
+		return to;
+	}
+
+	// A fixed mix of arithmetic, comparisons and strings, with a few syntax
+	// and runtime errors.
+	private static byte[][] sources(int count) {
+		Random random = new Random(42);
+		String[] operators = { "+", "-", "/", "%", "<", "==" };
+		byte[][] sources = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			StringBuilder builder = new StringBuilder();
+			int terms = 1 + random.nextInt(16);
+			builder.append(random.nextInt(100));
+			for (int t = 1; t < terms; t++) {
+				builder.append(' ').append(operators[random.nextInt(operators.length)]).append(' ');
+				builder.append(random.nextInt(100));
+			}
+			if (i % 50 == 0) builder.append(" +");
+			if (i % 50 == 25) builder.append(" + \"x\"");
+			sources[i] = builder.toString().getBytes(StandardCharsets.UTF_8);
+		}
+		return sources;
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1e3;
+	}
+}
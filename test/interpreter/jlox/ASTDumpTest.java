@@ -0,0 +1,48 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Round trip for ASTDump: writes random parsed trees, and the benchmark
+// Corpus shapes, into one dump, reads them back and checks each prints the
+// same and keeps its operators' types and lines.
+class ASTDumpTest {
+
+	private static final String[] ATOMS = { "0", "7", "12.5", "0.1", "2147483647", "2147483648", "4294967296",
+			"123456789012345678901234", "true", "false", "nil", "\"\"", "\"s\"", "\"café ☃\"" };
+
+	private static final double[] EDGES = { -0.0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, -2147483649.0,
+			Double.NaN, Double.NEGATIVE_INFINITY, Double.MIN_VALUE };
+
+	@Test
+	void readsBackWhatWasWritten() throws IOException {
+		// Spread over lines, so operator lines are worth checking.
+		List<Expression> trees = RandomTrees.trees(10_000, 20_000, random -> RandomTrees
+				.source(random, ATOMS, random.nextInt(6)).replace(" ", random.nextBoolean() ? " " : "\n"));
+		// Values the parser never produces but a dump of folded trees could hold.
+		for (double value : EDGES) trees.add(new Expression.Literal(value));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		ASTDump.Writer writer = new ASTDump.Writer(out);
+		for (Expression tree : trees) writer.write(tree);
+		out.flush();
+
+		ASTDump.Reader reader = new ASTDump.Reader(ByteBuffer.wrap(bytes.toByteArray()));
+		for (int i = 0; i < trees.size(); i++) {
+			int index = i;
+			Expression read = reader.read();
+			assertEquals(RandomTrees.describe(trees.get(i)), read == null ? "(end of dump)" : RandomTrees.describe(read),
+					() -> Seeds.where("tree " + index));
+		}
+		assertNull(reader.read(), () -> Seeds.where("dump holds more trees than were written"));
+	}
+}
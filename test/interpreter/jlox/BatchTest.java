@@ -0,0 +1,100 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Runs inputs spanning several blocks on many threads, and checks they print
+// what running each line in turn does: results in input order, and errors
+// reported on the line of the whole input they are on.
+class BatchTest {
+
+	// Numbers and operators giving numbers only: '*' does not check its
+	// operands, so fails other than with a RuntimeError.
+	private static final String[] ATOMS = { "0", "1", "2", "0.5", "(1 + 2)", "- 3" };
+	private static final String[] OPERATORS = { "+", "-", "/", "%" };
+
+	// Each fails to scan or parse, or fails when run.
+	private static final String[] FAILING = { "1 +", "(1", "@", "1 / 0", "- \"s\"", "\"s\" - 2", "nil < 1",
+			"true + 1" };
+
+	@Test
+	void keepsTheOrderAndLinesOfASequentialRun() {
+		Random random = Seeds.random();
+		int lines = 3 * Batch.BLOCK_LINES + random.nextInt(Batch.BLOCK_LINES);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < lines; i++) {
+			int kind = random.nextInt(10);
+			if (kind == 0) text.append(FAILING[random.nextInt(FAILING.length)]);
+			else if (kind == 1) text.append(random.nextBoolean() ? "" : " \t");
+			else text.append(arithmetic(random));
+			text.append('\n');
+		}
+		String source = text.toString();
+
+		for (int cacheEntries : new int[] { 0, 64 }) {
+			String where = Seeds.where(lines + " lines, cache of " + cacheEntries);
+			Engine.Options options = new Engine.Options();
+			options.printTree = false;
+			options.cacheEntries = cacheEntries;
+			Engine engine = new Engine(options);
+
+			ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+			ByteArrayOutputStream expectedErr = new ByteArrayOutputStream();
+			Session sequential = engine.newSession(Capture.print(expectedOut), Capture.print(expectedErr));
+			String[] split = source.split("\n", -1);
+			for (int i = 0; i < lines; i++) {
+				if (!split[i].isBlank()) sequential.run(split[i], i + 1);
+			}
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ByteArrayOutputStream err = new ByteArrayOutputStream();
+			Session session = engine.newSession(Capture.print(out), Capture.print(err));
+			new Batch(engine, 4).run(source, session);
+
+			assertEquals(expectedOut.toString(StandardCharsets.UTF_8), out.toString(StandardCharsets.UTF_8), where);
+			assertEquals(expectedErr.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8), where);
+			assertEquals(sequential.hadError(), session.hadError(), where);
+			assertEquals(sequential.hadRuntimeError(), session.hadRuntimeError(), where);
+		}
+	}
+
+	private static String arithmetic(Random random) {
+		StringBuilder source = new StringBuilder(ATOMS[random.nextInt(ATOMS.length)]);
+		for (int n = random.nextInt(4); n > 0; n--) {
+			source.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ')
+					.append(ATOMS[random.nextInt(ATOMS.length)]);
+		}
+		return source.toString();
+	}
+
+	// Known failures past the first block, reported on their own lines.
+	@Test
+	void reportsErrorsOnTheLinesOfTheWholeInput() {
+		int lines = 2 * Batch.BLOCK_LINES + 10;
+		StringBuilder text = new StringBuilder();
+		for (int i = 1; i <= lines; i++) {
+			text.append(i == 300 ? "1 +" : i == 511 ? "- \"s\"" : Integer.toString(i)).append('\n');
+		}
+		Engine.Options options = new Engine.Options();
+		options.printTree = false;
+		Engine engine = new Engine(options);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		new Batch(engine, 4).run(text.toString(), engine.newSession(Capture.print(out), Capture.print(err)));
+
+		String[] printed = out.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+		assertEquals(lines - 1, printed.length);
+		for (int i = 1, at = 0; i <= lines; i++) {
+			if (i == 300) assertEquals("[line 300] Error at end: Expect expression.", printed[at++]);
+			else if (i != 511) assertEquals(Integer.toString(i), printed[at++]);
+		}
+		assertTrue(err.toString(StandardCharsets.UTF_8).endsWith("[line 511]" + System.lineSeparator()),
+				err.toString(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,35 @@
+package interpreter.jlox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streams and Consoles that print into a buffer, for tests that compare what
+// two runs printed or scanned.
+final class Capture {
+
+	private Capture() {
+	}
+
+	static PrintStream print(ByteArrayOutputStream out) {
+		return new PrintStream(out, true, StandardCharsets.UTF_8);
+	}
+
+	// Syntax errors, which a Console prints to out, go into 'out'; runtime
+	// errors still go to System.err.
+	static Console console(ByteArrayOutputStream out) {
+		return new Console(print(out), System.err);
+	}
+
+	// The tokens a Scanner gives for 'source', then the errors it printed.
+	static List<String> scan(CharSequence source, boolean bulkSkip) {
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		List<String> scanned = new ArrayList<>();
+		Scanner scanner = new Scanner(source, console(errors), 1, bulkSkip);
+		for (Token token : scanner.scanTokens()) scanned.add(token.toString());
+		scanned.add(errors.toString(StandardCharsets.UTF_8));
+		return scanned;
+	}
+}
@@ -0,0 +1,113 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+// Writes to out and err at random, in pieces smaller and larger than the
+// buffers, and checks each channel gets all of its own text and that both
+// together see it in the order it was written. Then checks output nobody
+// flushes still arrives once the flush interval has passed.
+class ChannelOutputTest {
+
+	@Test
+	void keepsTheOrderOfOutAndErr() {
+		Random random = Seeds.random();
+		int runs = Seeds.count(200);
+		for (int run = 0; run < runs; run++) {
+			String where = Seeds.where("run " + run);
+			ByteArrayOutputStream combined = new ByteArrayOutputStream();
+			Recorder out = new Recorder(combined);
+			Recorder err = new Recorder(combined);
+			int buffer = 1 + random.nextInt(64);
+			ChannelOutput output = new ChannelOutput(out, err, buffer, ChannelOutput.FLUSH_MILLIS);
+
+			StringBuilder expected = new StringBuilder();
+			StringBuilder expectedOut = new StringBuilder();
+			StringBuilder expectedErr = new StringBuilder();
+			for (int n = random.nextInt(100); n > 0; n--) {
+				boolean toErr = random.nextBoolean();
+				// Now and then longer than the buffer, so written straight through.
+				String text = (toErr ? "err " : "out ") + n + "x".repeat(random.nextInt(2 * buffer)) + '\n';
+				(toErr ? output.err() : output.out()).print(text);
+				expected.append(text);
+				(toErr ? expectedErr : expectedOut).append(text);
+			}
+			output.close();
+
+			assertEquals(expected.toString(), combined.toString(Charset.defaultCharset()), where);
+			assertEquals(expectedOut.toString(), out.text(), where);
+			assertEquals(expectedErr.toString(), err.text(), where);
+		}
+	}
+
+	@Test
+	void flushesOnTheIntervalUnasked() throws InterruptedException {
+		long started = System.nanoTime();
+		Recorder out = new Recorder(new ByteArrayOutputStream());
+		ChannelOutput output = new ChannelOutput(out, new Recorder(new ByteArrayOutputStream()), ChannelOutput.BUFFER,
+				ChannelOutput.FLUSH_MILLIS);
+		try {
+			output.out().print("3\n");
+			// Held in the buffer until the timer first runs.
+			boolean held = out.text().isEmpty();
+			if (System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(ChannelOutput.FLUSH_MILLIS)) {
+				assertTrue(held, "written before the interval");
+			}
+			long deadline = started + TimeUnit.SECONDS.toNanos(10);
+			while (out.text().isEmpty() && System.nanoTime() < deadline) Thread.sleep(5);
+			long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+			assertEquals("3\n", out.text());
+			assertTrue(waited >= ChannelOutput.FLUSH_MILLIS, () -> "flushed after " + waited + " ms");
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	// Keeps what is written to it, and adds it to 'combined' as well, which
+	// it shares with another Recorder.
+	private static final class Recorder implements WritableByteChannel {
+		private final ByteArrayOutputStream own = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream combined;
+
+		Recorder(ByteArrayOutputStream combined) {
+			this.combined = combined;
+		}
+
+		@Override
+		public int write(ByteBuffer source) {
+			byte[] bytes = new byte[source.remaining()];
+			source.get(bytes);
+			synchronized (combined) {
+				own.write(bytes, 0, bytes.length);
+				combined.write(bytes, 0, bytes.length);
+			}
+			return bytes.length;
+		}
+
+		String text() {
+			synchronized (combined) {
+				return own.toString(Charset.defaultCharset());
+			}
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Compiles random parsed trees, and the benchmark Corpus shapes, and checks
+// each class gives what the boxed Interpreter does: the same value, or the
+// same error from the same Token.
+class ClassCompilerTest {
+
+	private static final String[] ATOMS = { "0", "1", "7", "12.5", "0.1", "123456789012345678901234", "true",
+			"false", "nil", "\"\"", "\"s\"", "\"café ☃\"" };
+
+	@Test
+	void behavesAsTheInterpreter() {
+		List<Expression> trees = RandomTrees.trees(100_000, 20_000, ATOMS, 8);
+		Interpreter interpreter = new Interpreter();
+		interpreter.unboxed = false;
+		for (int i = 0; i < trees.size(); i++) {
+			Expression tree = trees.get(i);
+			String where = Seeds.where("tree " + i + ", " + new ASTPrinter().print(tree));
+			ClassCompiler.Compiled code = new ClassCompiler().compile(tree);
+			assertNotNull(code, () -> "did not compile " + where);
+			assertEquals(RandomTrees.outcome(() -> interpreter.compute(tree)), RandomTrees.outcome(code::evaluate), where);
+		}
+	}
+
+	@Test
+	void leavesTreesOverTheLimitToTheInterpreter() {
+		Expression tree = RandomTrees.parse(Corpus.CHAIN.generate(2 * ClassCompiler.MAX_NODES + 1));
+		assertEquals(null, new ClassCompiler().compile(tree));
+	}
+
+	// Through an Engine, where a source is compiled on its second run and the
+	// class runs from then on, after the optimizer has folded what it can.
+	// Each source runs three times in one Session and must print what it does
+	// without compiling, runtime errors and their lines included.
+	@Test
+	void compilesOftenRunSourcesInASession() {
+		// Folded strings reach the class as constants, the last too long for ldc.
+		String[] sources = { "1 + 2 * 3", "(\"ab\" + \"cd\") + \"ef\"", "(\"ab\" + \"cd\") + (1 <\n\"ef\")",
+				"\"s\"\n+ 1", "1 +\n2 *\n\n-\"x\"", "\"a\" + \"b\" == \"ab\"",
+				"(\"" + "long ".repeat(20_000) + "\" + \"!\") + 1" };
+		Engine.Options options = new Engine.Options();
+		options.cacheEntries = 16;
+		Engine interpreting = new Engine(options);
+		options.compileAfter = 2;
+		Engine compiling = new Engine(options);
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		Session reference = interpreting.newSession(Capture.print(expected), Capture.print(expected));
+		Session session = compiling.newSession(Capture.print(actual), Capture.print(actual));
+		for (String source : sources) {
+			for (int run = 0; run < 3; run++) {
+				reference.run(source);
+				session.run(source);
+				reference.clearErrors();
+				session.clearErrors();
+			}
+			// The first run to reach the threshold kept its class.
+			Program program = compiling.cache().get(source);
+			assertNotNull(program, () -> "did not cache " + source);
+			assertNotNull(program.compiled(2), () -> "did not compile " + source);
+		}
+		assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,97 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Randomized edit replay for Document: starting from random text, applies
+// random insertions, deletions and replacements, and after each one checks
+// the Document's tokens, trees and errors against a full Scanner and Parser
+// pass over the same text.
+class DocumentTest {
+
+	// Whole tokens and the characters that end, join or break them.
+	private static final String[] PIECES = { "1", "23", "4.5", "6.", ".", "x", "ab", "and", "or", "true",
+			"false", "nil", "var", "print", "\"s\"", "\"a\nb\"", "\"", "// c\n", "/", "=", "==", "!", "!=", "<",
+			"<=", ">", "+", "-", "*", "%", "(", ")", ";", ";", ";", " ", " ", "\n", "\n", "@" };
+	private static final String CHARACTERS = "0123456789.xa\"/=!<>+-*%();; \n\n@";
+
+	// The text is kept to around this many characters.
+	private static final int SIZE = 2000;
+
+	@Test
+	void editsMatchAFullParse() {
+		Random random = Seeds.random();
+		int edits = Seeds.count(20_000);
+
+		Document document = new Document(fragment(random, SIZE / 10));
+		check(document, "initial");
+		for (int i = 0; i < edits; i++) {
+			String text = document.text();
+			int offset = random.nextInt(text.length() + 1);
+			int removed = random.nextInt(4) == 0 ? random.nextInt(Math.min(8, text.length() - offset) + 1) : 0;
+			String inserted = random.nextInt(3) == 0 ? "" : random.nextBoolean()
+					? String.valueOf(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())))
+					: fragment(random, 1 + random.nextInt(5));
+			// Now and then a paste or a cut of a whole block.
+			if (random.nextInt(50) == 0) {
+				if (random.nextBoolean()) inserted = fragment(random, random.nextInt(SIZE / 4));
+				else removed = Math.min(text.length() - offset, random.nextInt(SIZE / 4));
+			}
+			// Keeps the text from shrinking away or growing without bound.
+			if (text.length() > SIZE) removed = Math.min(text.length() - offset, 20);
+			if (text.length() < SIZE / 40) inserted += fragment(random, 20);
+
+			if (random.nextInt(10) == 0) {
+				document.update(text.substring(0, offset) + inserted + text.substring(offset + removed));
+			}
+			else {
+				document.edit(offset, removed, inserted);
+			}
+			check(document, "edit " + i + ": " + removed + " at " + offset + " -> " + quote(inserted));
+		}
+	}
+
+	private static String fragment(Random random, int pieces) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < pieces; i++) builder.append(PIECES[random.nextInt(PIECES.length)]);
+		return builder.toString();
+	}
+
+	private static void check(Document document, String step) {
+		String text = document.text();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Console console = Capture.console(out);
+		List<Token> tokens = new Scanner(text, console, 1).scanTokens();
+		Parser parser = new Parser(tokens, console);
+		List<String> trees = new ArrayList<>();
+		while (parser.hasNext()) trees.add(RandomTrees.describe(parser.parseNext()));
+		// Compared as printed: a lexeme in an error can span lines.
+		String errors = out.toString(StandardCharsets.UTF_8);
+		StringBuilder actualErrors = new StringBuilder();
+		for (String error : document.errors()) actualErrors.append(error).append('\n');
+
+		List<String> actualTrees = new ArrayList<>();
+		for (Expression tree : document.expressions()) actualTrees.add(RandomTrees.describe(tree));
+		String where = Seeds.where("after " + step + ", text " + quote(text));
+		assertEquals(describe(tokens), describe(document.tokens()), () -> "tokens " + where);
+		assertEquals(trees, actualTrees, () -> "trees " + where);
+		assertEquals(errors, actualErrors.toString(), () -> "errors " + where);
+	}
+
+	private static List<String> describe(List<Token> tokens) {
+		List<String> described = new ArrayList<>();
+		for (Token token : tokens) described.add(token.toString());
+		return described;
+	}
+
+	private static String quote(String text) {
+		return '"' + text.replace("\n", "\\n") + '"';
+	}
+}
@@ -0,0 +1,153 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// The cache must be one store over all its entries: full at exactly its
+// entry and byte budgets, and evicting the one entry not used since the
+// last eviction wherever the keys hash. A source is one entry whichever
+// line it is run from.
+class ExpressionCacheTest {
+
+	@Test
+	void evictsTheLeastRecentlyUsedEntry() {
+		Random random = Seeds.random();
+		for (int max : new int[] { 1, 2, 16, 17, 100 }) {
+			ExpressionCache cache = new ExpressionCache(max, Long.MAX_VALUE);
+			for (int i = 0; i < max; i++) cache.put(source(i), program(1));
+			assertEquals(max, cache.size());
+
+			// Every entry but one is used again, in random order.
+			int stale = random.nextInt(max);
+			for (int i : shuffled(random, max)) {
+				if (i != stale) assertNotNull(cache.get(source(i)), Seeds.where(max + " entries, " + i));
+			}
+			cache.put(source(max), program(1));
+
+			String where = Seeds.where(max + " entries, " + stale + " stale");
+			assertEquals(max, cache.size(), where);
+			assertEquals(1, cache.evictions(), where);
+			assertNull(cache.get(source(stale)), where);
+			for (int i = 0; i <= max; i++) {
+				if (i != stale) assertNotNull(cache.get(source(i)), where);
+			}
+		}
+	}
+
+	@Test
+	void holdsAsManyEntriesAsAllowed() {
+		for (int max : new int[] { 16, 17 }) {
+			ExpressionCache cache = new ExpressionCache(max, Long.MAX_VALUE);
+			for (int i = 0; i < 2 * max; i++) cache.put(source(i), program(1));
+			assertEquals(max, cache.size());
+			assertEquals(max, cache.evictions());
+		}
+	}
+
+	@Test
+	void sharesTheByteBudgetAcrossEntries() {
+		ExpressionCache cache = new ExpressionCache(100, 1000);
+		cache.put(source(0), program(1000));
+		assertEquals(1000, cache.bytes());
+		assertNotNull(cache.get(source(0)));
+
+		cache.put(source(1), program(600));
+		cache.put(source(2), program(400));
+		assertNull(cache.get(source(0)));
+		assertEquals(2, cache.size());
+		assertEquals(1000, cache.bytes());
+
+		// Too big to keep at all, so nothing is evicted for it.
+		cache.put(source(3), program(1001));
+		assertNull(cache.get(source(3)));
+		assertEquals(2, cache.size());
+	}
+
+	// The second copy of each source is a hit, and reports its errors on the
+	// lines it was run from.
+	@Test
+	void sharesTheSameSourceAcrossLines() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		Engine engine = engine(16);
+		Session session = engine.newSession(Capture.print(out), Capture.print(err));
+		for (int line : new int[] { 1, 40 }) {
+			session.run("1 + 2", line);
+			session.run("1 / 0", line + 2);
+			session.run("1 +\n- \"s\"", line + 4);
+			session.run("(1 +\n2", line + 6);
+		}
+
+		assertEquals(lines("3", "[line 8] Error at end: Expect ')' after expression", "3",
+				"[line 47] Error at end: Expect ')' after expression"), out.toString(StandardCharsets.UTF_8));
+		assertEquals(lines("Division by 0 error", "[line 3]", "Operand must be a number", "[line 6]",
+				"Division by 0 error", "[line 42]", "Operand must be a number", "[line 45]"),
+				err.toString(StandardCharsets.UTF_8));
+		assertEquals(3, engine.cache().hits());
+		assertEquals(3, engine.cache().size());
+		assertEquals(2, engine.cache().rejections());
+	}
+
+	// A stream looks each expression up by its tokens, wherever it is and
+	// however it is spaced, and prints what it does without the cache.
+	@Test
+	void sharesTheSameExpressionAcrossAStream() {
+		String source = "1 / 0\n// a comment\n1/0\n\"a\nb\" + 1\n  \"a\nb\"+ 1 \"a\nb\" +\n1\n(1 +\n2";
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		stream(engine(0), source, expected);
+		Engine engine = engine(16);
+		stream(engine, source, actual);
+
+		assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+		assertEquals(2, engine.cache().hits());
+		assertEquals(3, engine.cache().size());
+	}
+
+	private static Engine engine(int cacheEntries) {
+		Engine.Options options = new Engine.Options();
+		options.printTree = false;
+		options.cacheEntries = cacheEntries;
+		return new Engine(options);
+	}
+
+	private static void stream(Engine engine, String source, ByteArrayOutputStream into) {
+		PrintStream print = Capture.print(into);
+		engine.newSession(print, print)
+				.runStream(Channels.newChannel(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8))));
+	}
+
+	private static String lines(String... lines) {
+		return String.join(System.lineSeparator(), lines) + System.lineSeparator();
+	}
+
+	private static String source(int i) {
+		return i + " + 1";
+	}
+
+	private static Program program(long weight) {
+		return new Program(null, null, null, null, weight);
+	}
+
+	private static int[] shuffled(Random random, int count) {
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) order[i] = i;
+		for (int i = count - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		return order;
+	}
+}
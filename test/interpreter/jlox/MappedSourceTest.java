@@ -0,0 +1,65 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Scanning a mapped UTF-8 file must give the tokens and errors scanning the
+// decoded String does, with non-ASCII text inside and outside strings and
+// comments, through the plain loops and the bulk skips.
+class MappedSourceTest {
+
+	private static final String[] PIECES = { "1", "4.5", "x", "and", "\"s\"", "\"café ☃ 😀\"", "// é ☃\n", "+",
+			"==", "(", ")", " ", "\n", "@", "é", "ß", "☃", "€", "😀", "𝄞" };
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void matchesTheStringScan() throws IOException {
+		Random random = Seeds.random();
+		int texts = Seeds.count(1_000);
+		for (int i = 0; i < texts; i++) {
+			StringBuilder text = new StringBuilder();
+			for (int n = random.nextInt(100); n > 0; n--) text.append(PIECES[random.nextInt(PIECES.length)]);
+			String source = text.toString();
+			String where = Seeds.where("text " + i + ", \"" + source.replace("\n", "\\n") + '"');
+			for (boolean bulkSkip : new boolean[] { false, true }) {
+				assertEquals(Capture.scan(source, bulkSkip), Capture.scan(map(source), bulkSkip), where);
+			}
+		}
+	}
+
+	@Test
+	void reportsEachCharacterOnce() throws IOException {
+		String expected = String.join(System.lineSeparator(), "[line 1] Error: Unexpected character: é.",
+				"[line 1] Error: Unexpected character: ☃.", "[line 2] Error: Unexpected character: 😀.", "");
+		String source = "1 é ☃\n😀 2";
+		assertEquals(expected, errors(source));
+		assertEquals(expected, errors(map(source)));
+	}
+
+	private MappedSource map(String source) throws IOException {
+		Path file = Files.write(directory.resolve("script.lox"), source.getBytes(StandardCharsets.UTF_8));
+		try (FileChannel channel = FileChannel.open(file)) {
+			ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new MappedSource(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	private static String errors(CharSequence source) {
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		new Scanner(source, Capture.console(errors), 1).scanTokens();
+		return errors.toString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,92 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// For random literals of every shape the grammar accepts, NumberParser must
+// give the bits Double.parseDouble does.
+class NumberParserTest {
+
+	@Test
+	void matchesParseDouble() {
+		Random random = Seeds.random();
+		int cases = Seeds.count(200_000);
+		for (int i = 0; i < cases; i++) {
+			String literal = literal(random);
+			long expected = Double.doubleToRawLongBits(Double.parseDouble(literal));
+			long actual = Double.doubleToRawLongBits(NumberParser.parse(literal));
+			assertEquals(expected, actual, () -> Seeds.where(literal + ": expected " + Double.longBitsToDouble(expected)
+					+ ", got " + Double.longBitsToDouble(actual)));
+		}
+	}
+
+	private static String literal(Random random) {
+		switch (random.nextInt(8)) {
+		case 0:
+			// Integers of up to 20 digits.
+			return Long.toUnsignedString(random.nextLong() >>> random.nextInt(64));
+		case 1:
+			// Short decimals, as typed.
+			return random.nextInt(100000) + "." + digits(random, 1 + random.nextInt(6));
+		case 2:
+			// Long digit strings on either side of the point, past 19 digits.
+			return digits(random, 1 + random.nextInt(30)) + "." + digits(random, 1 + random.nextInt(30));
+		case 3:
+			// Leading and trailing zeros.
+			return "0".repeat(random.nextInt(5)) + digits(random, 1 + random.nextInt(20)) + "."
+					+ "0".repeat(random.nextInt(25)) + digits(random, random.nextInt(5) + 1)
+					+ "0".repeat(random.nextInt(5));
+		case 4:
+			// The shortest decimal for a random double.
+			return plain(new BigDecimal(Double.toString(randomDouble(random))));
+		case 5:
+			// The exact expansion of a random double.
+			return plain(new BigDecimal(randomDouble(random)));
+		case 6: {
+			// Halfway between two neighbouring doubles, and just either side.
+			double d = randomDouble(random);
+			BigDecimal middle = new BigDecimal(d).add(new BigDecimal(Math.nextUp(d))).divide(BigDecimal.valueOf(2));
+			BigDecimal nudge = BigDecimal.ONE.movePointLeft(middle.scale() + 1 + random.nextInt(3));
+			switch (random.nextInt(3)) {
+			case 0: return plain(middle);
+			case 1: return plain(middle.add(nudge));
+			default: return plain(middle.subtract(nudge));
+			}
+		}
+		default:
+			// Extremes: tiny, subnormal, huge and overflowing.
+			switch (random.nextInt(4)) {
+			case 0: return "0." + "0".repeat(300 + random.nextInt(30)) + digits(random, 1 + random.nextInt(20));
+			case 1: return "0." + "0".repeat(random.nextInt(340)) + digits(random, 1 + random.nextInt(20));
+			case 2: return digits(random, 300 + random.nextInt(20));
+			default: return digits(random, 1 + random.nextInt(320)) + "." + digits(random, 1 + random.nextInt(5));
+			}
+		}
+	}
+
+	// Positive and finite, spread across every exponent.
+	private static double randomDouble(Random random) {
+		double d;
+		do {
+			d = Double.longBitsToDouble(random.nextLong() & Long.MAX_VALUE);
+		} while (Double.isNaN(d) || Double.isInfinite(d) || d == 0);
+		return d;
+	}
+
+	private static String digits(Random random, int count) {
+		StringBuilder builder = new StringBuilder(count);
+		for (int i = 0; i < count; i++) builder.append((char) ('0' + random.nextInt(10)));
+		return builder.toString();
+	}
+
+	// Without an exponent, and with a digit on both sides of any point, as
+	// the grammar requires.
+	private static String plain(BigDecimal value) {
+		String text = value.toPlainString();
+		return text.endsWith(".") ? text.substring(0, text.length() - 1) : text;
+	}
+}
@@ -0,0 +1,77 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Optimizes random parsed trees, and the benchmark Corpus shapes, and checks
+// each gives what the unoptimized tree does: the same value, or the same
+// error from the same Token.
+class OptimizerTest {
+
+	// The long atom scans to Infinity, from which NaN follows.
+	private static final String[] ATOMS = { "0", "1", "2", "0.5", "1" + "0".repeat(400), "true", "false", "nil",
+			"\"\"", "\"s\"", "\"t\"" };
+
+	@Test
+	void behavesAsTheInterpreter() {
+		List<Expression> trees = RandomTrees.trees(10_000, 20_000, ATOMS, 8);
+		for (int i = 0; i < trees.size(); i++) {
+			Expression tree = trees.get(i);
+			Expression optimized = new Optimizer().optimize(tree);
+			String where = Seeds.where("tree " + i + ", " + new ASTPrinter().print(tree));
+			for (boolean unboxed : new boolean[] { false, true }) {
+				Interpreter interpreter = new Interpreter();
+				interpreter.unboxed = unboxed;
+				assertEquals(RandomTrees.outcome(() -> interpreter.compute(tree)),
+						RandomTrees.outcome(() -> interpreter.compute(optimized)), where);
+			}
+		}
+	}
+
+	// Each fails when run, so is kept as it was for the error to come from
+	// its own operator.
+	@Test
+	void leavesFailingOperationsUnfolded() {
+		String[] sources = { "1 / 0", "1 % 0", "\"a\" - 1", "- \"a\"", "\"a\" < 1", "nil + 1", "\"s\" * 1",
+				"1 * \"s\"", "(\"a\" + \"b\") * 1", "\"s\" / 1", "\"s\" - 0", "- - \"s\"", "! ! 1 + 2 / 0" };
+		for (String source : sources) {
+			Expression tree = RandomTrees.parse(source);
+			Expression optimized = new Optimizer().optimize(tree);
+			assertTrue(!(optimized instanceof Expression.Literal), source);
+			assertEquals(RandomTrees.outcome(() -> new Interpreter().compute(tree)),
+					RandomTrees.outcome(() -> new Interpreter().compute(optimized)), source);
+		}
+	}
+
+	@Test
+	void foldsSignedZeroAndNaN() {
+		String infinity = "1" + "0".repeat(400);
+		assertEquals("-0", folded("- 0"));
+		assertEquals("-0", folded("- 0 - 0"));
+		assertEquals("-0", folded("(- 0) * 1"));
+		assertEquals("0", folded("- 0 + 0"));
+		assertEquals("NaN", folded(infinity + " - " + infinity));
+		assertEquals("NaN", folded("(" + infinity + " - " + infinity + ") * 1"));
+	}
+
+	@Test
+	void foldsStringsAsTheInterpreterJoinsThem() {
+		assertEquals("st", folded("\"s\" + \"t\""));
+		assertEquals("true", folded("\"s\" + \"t\" == \"st\""));
+		assertEquals("false", folded("\"s\" + \"t\" != \"s\" + \"t\""));
+		assertEquals("stu", folded("(\"s\" + \"t\") + \"u\""));
+	}
+
+	// The printed result of a source that folds to a single literal.
+	private static String folded(String source) {
+		Expression optimized = new Optimizer().optimize(RandomTrees.parse(source));
+		assertTrue(optimized instanceof Expression.Literal, source);
+		assertEquals(Interpreter.stringify(new Interpreter().compute(RandomTrees.parse(source))),
+				Interpreter.stringify(((Expression.Literal) optimized).value), source);
+		return Interpreter.stringify(((Expression.Literal) optimized).value);
+	}
+}
@@ -0,0 +1,116 @@
+package interpreter.jlox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Random expressions built from given atoms and every binary operator, and
+// the benchmark Corpus shapes, parsed without optimizing; and how evaluating
+// one turns out, for comparing evaluators.
+final class RandomTrees {
+
+	static final String[] OPERATORS = { "+", "-", "*", "/", "%", "==", "!=", "<", "<=", ">", ">=" };
+
+	private RandomTrees() {
+	}
+
+	// Nested at most 'depth' deep, with tokens separated by single spaces.
+	static String source(Random random, String[] atoms, int depth) {
+		StringBuilder source = new StringBuilder();
+		expression(random, atoms, source, depth);
+		return source.toString();
+	}
+
+	private static void expression(Random random, String[] atoms, StringBuilder source, int depth) {
+		int choice = depth == 0 ? 0 : random.nextInt(4);
+		if (choice == 0) {
+			source.append(atoms[random.nextInt(atoms.length)]);
+		}
+		else if (choice == 1) {
+			source.append(random.nextBoolean() ? "- " : "! ");
+			expression(random, atoms, source, depth - 1);
+		}
+		else if (choice == 2) {
+			source.append("( ");
+			expression(random, atoms, source, depth - 1);
+			source.append(" )");
+		}
+		else {
+			expression(random, atoms, source, depth - 1);
+			source.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ');
+			expression(random, atoms, source, depth - 1);
+		}
+	}
+
+	// One tree of each Corpus shape of about 'tokens' tokens, then trees
+	// parsed from 'source' until there are Seeds.count(cases) in all.
+	static List<Expression> trees(int tokens, int cases, Function<Random, String> source) {
+		Random random = Seeds.random();
+		int count = Seeds.count(cases);
+		List<Expression> trees = corpus(tokens);
+		while (trees.size() < count) trees.add(parse(source.apply(random)));
+		return trees;
+	}
+
+	// The random trees nest fewer than 'depth' deep.
+	static List<Expression> trees(int tokens, int cases, String[] atoms, int depth) {
+		return trees(tokens, cases, random -> source(random, atoms, random.nextInt(depth)));
+	}
+
+	// One tree of each Corpus shape.
+	static List<Expression> corpus(int tokens) {
+		List<Expression> trees = new ArrayList<>();
+		for (Corpus shape : Corpus.values()) trees.add(parse(shape.generate(tokens)));
+		return trees;
+	}
+
+	static Expression parse(String source) {
+		Console console = Console.standard();
+		Expression tree = new Parser(new Scanner(source, console, 1).scanTokens(), console).parse();
+		if (console.hadError || tree == null) throw new IllegalStateException("Does not parse: " + source);
+		return tree;
+	}
+
+	// The printed tree, with the type and line of every operator, which
+	// printing alone leaves out.
+	static String describe(Expression tree) {
+		if (tree == null) return "null";
+		StringBuilder text = new StringBuilder(new ASTPrinter().print(tree));
+		ArrayList<Expression> pending = new ArrayList<>();
+		pending.add(tree);
+		while (!pending.isEmpty()) {
+			Expression node = pending.remove(pending.size() - 1);
+			if (node instanceof Expression.Binary) {
+				Expression.Binary binary = (Expression.Binary) node;
+				text.append(' ').append(binary.operator.GetType()).append('@').append(binary.operator.GetLine());
+				pending.add(binary.right);
+				pending.add(binary.left);
+			}
+			else if (node instanceof Expression.Unary) {
+				Expression.Unary unary = (Expression.Unary) node;
+				text.append(' ').append(unary.operator.GetType()).append('@').append(unary.operator.GetLine());
+				pending.add(unary.right);
+			}
+			else if (node instanceof Expression.Grouping) {
+				pending.add(((Expression.Grouping) node).expression);
+			}
+		}
+		return text.toString();
+	}
+
+	// The printed value, or the error and the very Token it came from, so
+	// two evaluators agree only if they fail at the same operator.
+	static String outcome(Supplier<Object> run) {
+		try {
+			return "= " + Interpreter.stringify(run.get());
+		}
+		catch (RuntimeError e) {
+			return "! " + e.getMessage() + " at " + e.token.GetType() + "@" + System.identityHashCode(e.token);
+		}
+		catch (RuntimeException e) {
+			return "! " + e.getClass().getName();
+		}
+	}
+}
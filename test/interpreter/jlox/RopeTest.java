@@ -0,0 +1,76 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Builds ropes far deeper than any call stack, leaning either way, and checks
+// they compare and print as the Strings they stand for while still unflattened,
+// and when one of their parts was flattened first.
+class RopeTest {
+
+	private static final int DEPTH = 200_000;
+
+	@Test
+	void handlesDeepLeftChains() {
+		check(Seeds.random().nextLong(), false);
+	}
+
+	@Test
+	void handlesDeepRightChains() {
+		check(Seeds.random().nextLong(), true);
+	}
+
+	private static void check(long seed, boolean right) {
+		String where = Seeds.where(DEPTH + " levels, " + (right ? "right" : "left"));
+		String expected = text(seed, right);
+
+		Object[] printed = chain(seed, right);
+		assertTrue(printed[DEPTH - 1] instanceof Rope, where);
+		assertEquals(expected, Interpreter.stringify(printed[DEPTH - 1]), where);
+
+		// Neither side flat when compared.
+		assertTrue(Interpreter.equal(chain(seed, right)[DEPTH - 1], chain(seed, right)[DEPTH - 1]), where);
+		Object[] other = chain(seed, right);
+		Object changed = right ? Rope.concat("#", other[DEPTH - 2]) : Rope.concat(other[DEPTH - 2], "#");
+		assertFalse(Interpreter.equal(chain(seed, right)[DEPTH - 1], changed), where);
+		assertTrue(Interpreter.equal(expected, chain(seed, right)[DEPTH - 1]), where);
+
+		// A part deep enough to be a Rope is flattened first, so the whole then
+		// meets one whose children are already gone.
+		Object[] parts = chain(seed, right);
+		int part = DEPTH / 2 + new Random(seed).nextInt(DEPTH / 2 - 1);
+		String partText = parts[part].toString();
+		assertEquals(right ? expected.substring(DEPTH - 1 - part) : expected.substring(0, part + 1), partText, where);
+		assertEquals(expected, Interpreter.stringify(parts[DEPTH - 1]), where);
+	}
+
+	// Each level adds one letter to the end of the one before, or to the
+	// start for a right chain.
+	private static Object[] chain(long seed, boolean right) {
+		Random random = new Random(seed);
+		Object[] levels = new Object[DEPTH];
+		Object value = "";
+		for (int i = 0; i < DEPTH; i++) {
+			String letter = letter(random);
+			value = right ? Rope.concat(letter, value) : Rope.concat(value, letter);
+			levels[i] = value;
+		}
+		return levels;
+	}
+
+	private static String text(long seed, boolean right) {
+		Random random = new Random(seed);
+		StringBuilder text = new StringBuilder(DEPTH);
+		for (int i = 0; i < DEPTH; i++) text.append(letter(random));
+		return right ? text.reverse().toString() : text.toString();
+	}
+
+	private static String letter(Random random) {
+		return Character.toString((char) ('a' + random.nextInt(26)));
+	}
+}
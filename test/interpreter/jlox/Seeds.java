@@ -0,0 +1,31 @@
+package interpreter.jlox;
+
+import java.util.Random;
+
+// Seeds for the randomized tests. Every build runs the same cases; another
+// seed, for a longer hunt, is given with -Djlox.seed=N, and every failure
+// names the seed it came from.
+final class Seeds {
+
+	static final long DEFAULT = 42;
+
+	private Seeds() {
+	}
+
+	static long seed() {
+		return Long.getLong("jlox.seed", DEFAULT);
+	}
+
+	static Random random() {
+		return new Random(seed());
+	}
+
+	// Counts are scaled by -Djlox.scale=N, 1 unless given.
+	static int count(int cases) {
+		return cases * Integer.getInteger("jlox.scale", 1);
+	}
+
+	static String where(String step) {
+		return step + ", seed " + seed();
+	}
+}
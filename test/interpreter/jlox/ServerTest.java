@@ -0,0 +1,78 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+// Sends a pipelined burst of frames over a loopback connection, with syntax
+// and runtime errors among them, and checks each is answered with its own
+// status and text, in the order the requests were sent.
+class ServerTest {
+
+	private static final String[] REQUESTS = { "1 + 2", "1 +", "- \"s\"", "\"a\" + \"b\"", "1 / 0", "(1", "2 < 3" };
+
+	private static final byte[] STATUSES = { Server.OK, Server.SYNTAX_ERROR, Server.RUNTIME_ERROR, Server.OK,
+			Server.RUNTIME_ERROR, Server.SYNTAX_ERROR, Server.OK };
+
+	private static final String[] TEXTS = { "3", "[line 1] Error at end: Expect expression.",
+			"Operand must be a number\n[line 1]", "ab", "Division by 0 error\n[line 1]",
+			"[line 1] Error at end: Expect ')' after expression", "true" };
+
+	@Test
+	void answersPipelinedRequestsInOrder() throws Exception {
+		Server server = new Server(new Engine(new Engine.Options()), 4);
+		int rounds = 100;
+		try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			CompletableFuture<Void> served = CompletableFuture.runAsync(() -> {
+				try (Socket socket = listener.accept()) {
+					server.serve(socket.getInputStream(), socket.getOutputStream());
+				}
+				catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+
+			try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), listener.getLocalPort())) {
+				// Every request goes out in one write, before any answer is read.
+				ByteArrayOutputStream burst = new ByteArrayOutputStream();
+				DataOutputStream frames = new DataOutputStream(burst);
+				for (int round = 0; round < rounds; round++) {
+					for (String request : REQUESTS) {
+						byte[] bytes = request.getBytes(StandardCharsets.UTF_8);
+						frames.writeInt(bytes.length);
+						frames.write(bytes);
+					}
+				}
+				socket.getOutputStream().write(burst.toByteArray());
+				socket.shutdownOutput();
+
+				DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				for (int round = 0; round < rounds; round++) {
+					for (int i = 0; i < REQUESTS.length; i++) {
+						byte[] response = new byte[input.readInt()];
+						input.readFully(response);
+						String where = "request " + (round * REQUESTS.length + i) + ", " + REQUESTS[i];
+						assertEquals(STATUSES[i], response[0], where);
+						assertEquals(TEXTS[i], new String(response, 1, response.length - 1, StandardCharsets.UTF_8)
+								.replace(System.lineSeparator(), "\n"), where);
+					}
+				}
+				assertEquals(-1, input.read());
+			}
+			served.get(10, TimeUnit.SECONDS);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Random texts are shifted through every offset within an eight-byte word,
+// so that blanks, newlines, quotes and comments start and stop at each byte
+// of a word as well as in the tail past the last whole one. Every skip, from
+// every position, must stop where the Scanner's plain loops would and count
+// the same newlines, and scanning with the bulk skips must give the tokens,
+// lines and errors scanning without them does.
+class SkipperTest {
+
+	private static final String[] PIECES = { " ", "\t", "\r", "\n", "\"", "//", "x", "1", "+", "   ", "\n\n",
+			" \n\t", "\"s\"", "// c\n", "@" };
+
+	@Test
+	void skipsAsThePlainLoopsDo() {
+		Random random = Seeds.random();
+		int texts = Seeds.count(2_000);
+		for (int i = 0; i < texts; i++) {
+			String text = text(random);
+			for (int shift = 0; shift < 8; shift++) {
+				String source = "x".repeat(shift) + text;
+				String where = Seeds.where("text " + i + ", shift " + shift + ", \"" + escape(source) + '"');
+				for (CharSequence chars : new CharSequence[] { source, map(source) }) {
+					// A fresh Skipper for each skip: StringSkipper remembers the
+					// next newline, which holds only from where its last skip
+					// stopped on, and the Scanner never goes back before that.
+					for (int from = 0; from <= source.length(); from++) {
+						String at = where + ", " + chars.getClass().getSimpleName() + " from " + from;
+						Skipper skipper = Skipper.of(chars);
+						assertEquals(blanks(source, from), skipper.skipBlanks(from) + "/" + skipper.newlines, at);
+						skipper = Skipper.of(chars);
+						assertEquals(comment(source, from), skipper.skipComment(from) + "/" + skipper.newlines, at);
+						skipper = Skipper.of(chars);
+						assertEquals(string(source, from), skipper.skipString(from) + "/" + skipper.newlines, at);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void scansAsThePlainLoopsDo() {
+		Random random = Seeds.random();
+		int texts = Seeds.count(2_000);
+		for (int i = 0; i < texts; i++) {
+			String text = text(random);
+			for (int shift = 0; shift < 8; shift++) {
+				String source = " ".repeat(shift) + text;
+				String where = Seeds.where("text " + i + ", shift " + shift + ", \"" + escape(source) + '"');
+				assertEquals(Capture.scan(source, false), Capture.scan(source, true), where);
+				assertEquals(Capture.scan(map(source), false), Capture.scan(map(source), true), where);
+			}
+		}
+	}
+
+	// Up to about five words, so most skips cross whole words and then end
+	// in the tail.
+	private static String text(Random random) {
+		StringBuilder text = new StringBuilder();
+		for (int n = random.nextInt(24); n > 0; n--) text.append(PIECES[random.nextInt(PIECES.length)]);
+		return text.toString();
+	}
+
+	private static MappedSource map(String source) {
+		byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+		return new MappedSource(buffer, StandardCharsets.UTF_8);
+	}
+
+	// The Scanner's own loops, as "stop/newlines".
+	private static String blanks(String source, int from) {
+		int newlines = 0;
+		int i = from;
+		for (; i < source.length(); i++) {
+			char c = source.charAt(i);
+			if (c == '\n') newlines++;
+			else if (c != ' ' && c != '\t' && c != '\r') break;
+		}
+		return i + "/" + newlines;
+	}
+
+	private static String comment(String source, int from) {
+		int i = from;
+		while (i < source.length() && source.charAt(i) != '\n') i++;
+		return i + "/0";
+	}
+
+	private static String string(String source, int from) {
+		int newlines = 0;
+		int i = from;
+		for (; i < source.length() && source.charAt(i) != '"'; i++) {
+			if (source.charAt(i) == '\n') newlines++;
+		}
+		return i + "/" + newlines;
+	}
+
+	private static String escape(String source) {
+		return source.replace("\n", "\\n").replace("\t", "\\t").replace("\r", "\\r");
+	}
+}
@@ -0,0 +1,74 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// StreamingScanner must give the tokens and errors Scanner does for the same
+// random text, including characters neither accepts.
+class StreamingScannerTest {
+
+	private static final String[] PIECES = { "1", "23", "4.5", "6.", ".", "x", "ab", "_c9", "and", "or", "true",
+			"false", "nil", "var", "print", "\"s\"", "\"a\nb\"", "\"", "// c\n", "/", "=", "==", "!", "!=", "<", "<=",
+			">", ">=", "+", "-", "*", "%", "(", ")", "{", "}", ",", ";", " ", "\t", "\r", "\n", "@", "é", "☃", "😀" };
+
+	@Test
+	void matchesScanner() {
+		Random random = Seeds.random();
+		int texts = Seeds.count(2_000);
+		for (int i = 0; i < texts; i++) {
+			StringBuilder text = new StringBuilder();
+			for (int n = random.nextInt(200); n > 0; n--) text.append(PIECES[random.nextInt(PIECES.length)]);
+			String source = text.toString();
+
+			ByteArrayOutputStream expectedErrors = new ByteArrayOutputStream();
+			List<String> expected = new ArrayList<>();
+			Scanner reference = new Scanner(source, Capture.console(expectedErrors), 1);
+			for (Token token : reference.scanTokens()) expected.add(token.toString());
+
+			ByteArrayOutputStream actualErrors = new ByteArrayOutputStream();
+			StreamingScanner scanner = new StreamingScanner(new StringReader(source), Capture.console(actualErrors));
+			List<String> actual = new ArrayList<>();
+			Token token;
+			do {
+				token = scanner.next();
+				actual.add(token.toString());
+			} while (token.GetType() != TokenType.EOF);
+
+			String where = Seeds.where("text " + i + ", \"" + source.replace("\n", "\\n") + '"');
+			assertEquals(expected, actual, () -> "tokens " + where);
+			assertEquals(expectedErrors.toString(StandardCharsets.UTF_8), actualErrors.toString(StandardCharsets.UTF_8),
+					() -> "errors " + where);
+		}
+	}
+
+	// A bad character found while peeking past the end of one expression
+	// belongs to the next, so only that one is skipped; one after the last
+	// expression is still reported.
+	@Test
+	void skipsOnlyTheExpressionWithTheBadCharacter() {
+		String source = "1 + 2\n@ 3\n4 $\n5 @";
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrintStream print = Capture.print(out);
+		Engine.Options options = new Engine.Options();
+		options.printTree = false;
+		Session session = new Engine(options).newSession(print, print);
+		session.runStream(Channels.newChannel(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8))));
+
+		assertEquals(String.join(System.lineSeparator(), "3", "[line 2] Error: Unexpected character: @.", "4",
+				"[line 3] Error: Unexpected character: $.", "[line 4] Error: Unexpected character: @.", ""),
+				out.toString(StandardCharsets.UTF_8));
+		assertTrue(session.hadError());
+	}
+}
@@ -0,0 +1,123 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// A cache file for other text, of another version, or cut short, damaged or
+// grown must load as nothing, and the next store must replace it with one
+// that loads.
+class TreeCacheTest {
+
+	private static final String[] ATOMS = { "0", "7", "12.5", "true", "nil", "\"s\"", "\"café ☃\"" };
+	// Before the dump: magic, version, key, length and CRC.
+	private static final int HEADER = 4 + 4 + 32 + 4 + 4;
+	private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void ignoresACacheForAChangedScript() throws IOException {
+		Random random = Seeds.random();
+		for (int i = 0; i < Seeds.count(50); i++) {
+			Path script = directory.resolve("changed" + i + ".lox");
+			String before = RandomTrees.source(random, ATOMS, 1 + random.nextInt(5));
+			String after = before + " + 1";
+			store(script, before);
+			assertNull(cache(script, after).load(Parser.TREE), () -> Seeds.where(before));
+			storesAgain(script, after);
+			// The old text no longer matches the file either.
+			assertNull(cache(script, before).load(Parser.TREE), () -> Seeds.where(before));
+		}
+	}
+
+	@Test
+	void ignoresAnotherVersion() throws IOException {
+		damaged("version", bytes -> {
+			ByteBuffer.wrap(bytes).putInt(4, TreeCache.VERSION + 1);
+			return bytes;
+		});
+	}
+
+	@Test
+	void ignoresATruncatedPayload() throws IOException {
+		Random random = Seeds.random();
+		damaged("truncated", bytes -> Arrays.copyOf(bytes, random.nextInt(bytes.length)));
+	}
+
+	@Test
+	void ignoresAFlippedPayloadByte() throws IOException {
+		Random random = Seeds.random();
+		damaged("flipped", bytes -> {
+			bytes[HEADER + random.nextInt(bytes.length - HEADER)] ^= 1 << random.nextInt(8);
+			return bytes;
+		});
+	}
+
+	@Test
+	void ignoresABadChecksum() throws IOException {
+		damaged("checksum", bytes -> {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			buffer.putInt(HEADER - 4, buffer.getInt(HEADER - 4) + 1);
+			return bytes;
+		});
+	}
+
+	@Test
+	void ignoresTrailingBytes() throws IOException {
+		Random random = Seeds.random();
+		damaged("trailing", bytes -> {
+			byte[] longer = Arrays.copyOf(bytes, bytes.length + 1 + random.nextInt(16));
+			for (int i = bytes.length; i < longer.length; i++) longer[i] = (byte) random.nextInt(256);
+			return longer;
+		});
+	}
+
+	// Stores random scripts' trees, damages each file, and checks it loads
+	// as nothing until stored again.
+	private void damaged(String name, UnaryOperator<byte[]> damage) throws IOException {
+		Random random = Seeds.random();
+		for (int i = 0; i < Seeds.count(50); i++) {
+			Path script = directory.resolve(name + i + ".lox");
+			String source = RandomTrees.source(random, ATOMS, 1 + random.nextInt(5));
+			Path file = store(script, source);
+			Files.write(file, damage.apply(Files.readAllBytes(file)));
+			assertNull(cache(script, source).load(Parser.TREE), () -> Seeds.where(name + " " + source));
+			storesAgain(script, source);
+		}
+	}
+
+	private Path store(Path script, String source) throws IOException {
+		Files.write(script, source.getBytes(CHARSET));
+		cache(script, source).store(RandomTrees.parse(source));
+		Path file = script.resolveSibling(script.getFileName() + TreeCache.SUFFIX);
+		assertNotNull(cache(script, source).load(Parser.TREE), () -> Seeds.where("stored " + source));
+		return file;
+	}
+
+	private void storesAgain(Path script, String source) throws IOException {
+		Expression tree = RandomTrees.parse(source);
+		cache(script, source).store(tree);
+		Expression loaded = cache(script, source).load(Parser.TREE);
+		assertNotNull(loaded, () -> Seeds.where("stored again " + source));
+		assertEquals(RandomTrees.describe(tree), RandomTrees.describe(loaded), () -> Seeds.where(source));
+	}
+
+	private static TreeCache cache(Path script, String source) {
+		return new TreeCache(script, source.getBytes(CHARSET), CHARSET);
+	}
+}
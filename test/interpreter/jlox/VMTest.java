@@ -0,0 +1,74 @@
+package interpreter.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+// Compiles random parsed trees, the benchmark Corpus shapes and corner cases
+// to bytecode and checks the VM gives what the tree-walking Interpreter
+// does: the same value, or the same error from the same Token, printed the
+// same way on the same line.
+class VMTest {
+
+	private static final String[] ATOMS = { "0", "1", "7", "12.5", "0.1", "true", "false", "nil", "\"\"", "\"s\"",
+			"\"café ☃\"" };
+
+	private static final String[] CORNERS = { "\"s\" + 1", "1 + \"s\"", "1 / 0", "1 % 0", "0 / 1", "- 0", "0 * - 1",
+			"- 0 == 0", "1 < \"a\"", "\"a\" < \"b\"", "nil < 1", "true > false", "nil == false", "nil == nil",
+			"1 == \"1\"", "\"a\" + \"b\" == \"ab\"", "! nil", "! 0", "- nil", "- \"s\"", "true + 1", "1 +\n\"s\"",
+			"(1 <\n2) +\n\n3", "-\n(\"a\" + \"b\")", "7 % 2.5", "- 7 % 2" };
+
+	@Test
+	void behavesAsTheInterpreter() {
+		// Spread over lines, so the line of each error is worth checking.
+		List<Expression> trees = RandomTrees.trees(10_000, 20_000, random -> RandomTrees
+				.source(random, ATOMS, random.nextInt(8)).replace(" ", random.nextBoolean() ? " " : "\n"));
+		for (String corner : CORNERS) trees.add(RandomTrees.parse(corner));
+
+		for (int i = 0; i < trees.size(); i++) {
+			Expression tree = trees.get(i);
+			Chunk chunk = new BytecodeCompiler().compile(tree);
+			String where = Seeds.where("tree " + i + ", " + new ASTPrinter().print(tree));
+			for (boolean unboxed : new boolean[] { false, true }) {
+				Interpreter interpreter = new Interpreter();
+				interpreter.unboxed = unboxed;
+				String expected = RandomTrees.outcome(() -> interpreter.compute(tree));
+				assertEquals(expected, RandomTrees.outcome(() -> new VM().run(chunk)), where);
+				// interpret() reports only RuntimeErrors; anything else escapes both.
+				if (expected.startsWith("! ") && !expected.contains(" at ")) continue;
+				assertEquals(printed(console -> {
+					Interpreter reference = new Interpreter(console);
+					reference.unboxed = unboxed;
+					reference.interpret(tree);
+				}), printed(console -> new VM(console).interpret(chunk)), where);
+			}
+		}
+	}
+
+	// Past what OP_CONSTANT's 2-byte index reaches, so the rest take
+	// OP_CONSTANT_LONG.
+	@Test
+	void runsChunksOfManyConstants() {
+		StringBuilder source = new StringBuilder("0.5");
+		for (int i = 1; i <= 70_000; i++) source.append(i % 2 == 0 ? " + " : " - ").append(i).append(".25");
+		Expression tree = RandomTrees.parse(source.toString());
+
+		Chunk chunk = new BytecodeCompiler().compile(tree);
+		assertEquals(70_001, chunk.constants.length);
+		assertEquals(new Interpreter().compute(tree), new VM(Console.standard()).run(chunk));
+	}
+
+	// Results and runtime errors, in the order they were printed.
+	private static String printed(Consumer<Console> run) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrintStream print = Capture.print(out);
+		run.accept(new Console(print, print));
+		return out.toString(StandardCharsets.UTF_8);
+	}
+}